@@ -0,0 +1,135 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * Seeds throwaway ledger databases for the benchmarks.
+ *
+ * Seeding millions of rows is slow, so each (users, transactions) size is built once
+ * into a template under {@code java.io.tmpdir/ledger-bench} and copied for every trial.
+ * Benchmarks that write therefore always start from the same state.
+ */
+final class BenchmarkDatabase {
+    static final String PASSWORD = "Bench#Passw0rd";
+    static final String[] DESCRIPTIONS = {
+            "food market", "monthly rent", "transport card", "salary", "coffee", "utilities", "savings top-up"
+    };
+
+    private static final int SEED_BATCH = 10_000;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private BenchmarkDatabase() {
+    }
+
+    static String email(int user) {
+        return "user" + user + "@bench.test";
+    }
+
+    /**
+     * Copies the seeded template for this size to a fresh file and points
+     * {@code ledger.db.url} at it. Must run before DatabaseHandler is first touched.
+     */
+    static Path prepare(int users, long transactions) throws IOException, SQLException {
+        Path dir = Path.of(System.getProperty("java.io.tmpdir"), "ledger-bench");
+        Files.createDirectories(dir);
+
+        Path template = dir.resolve("ledger-u" + users + "-t" + transactions + ".db");
+        if (!Files.exists(template)) {
+            Path partial = dir.resolve(template.getFileName() + ".partial");
+            Files.deleteIfExists(partial);
+            seed(partial, users, transactions);
+            Files.move(partial, template, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        Path trial = Files.createTempFile(dir, "trial-", ".db");
+        Files.copy(template, trial, StandardCopyOption.REPLACE_EXISTING);
+        System.setProperty("ledger.db.url", "jdbc:sqlite:" + trial);
+        return trial;
+    }
+
+    static void delete(Path trial) throws IOException {
+        Files.deleteIfExists(trial);
+        Files.deleteIfExists(Path.of(trial + "-wal"));
+        Files.deleteIfExists(Path.of(trial + "-shm"));
+    }
+
+    private static void seed(Path file, int users, long transactions) throws SQLException {
+        System.out.println("Seeding " + users + " users and " + transactions + " transactions into " + file);
+        Random random = new Random(42);
+        // one hash for every user: the benchmark measures verification, not seeding
+        String hash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt());
+
+        // closing the pool checkpoints the WAL, so the template is a single self-contained file
+        try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + file, 1)) {
+            SchemaMigrator.migrate(pool);
+
+            try (ConnectionPool.Lease lease = pool.writer()) {
+                Connection conn = lease.connection();
+                conn.setAutoCommit(false);
+
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO users(name, email, password) VALUES(?,?,?)")) {
+                    for (int u = 0; u < users; u++) {
+                        ps.setString(1, "user" + u);
+                        ps.setString(2, email(u));
+                        ps.setString(3, hash);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO savings(user_email, percentage, saved_amount) VALUES(?, 10, ?)")) {
+                    for (int u = 0; u < users; u++) {
+                        ps.setString(1, email(u));
+                        ps.setLong(2, 500);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+
+                // spread postings over three years so date filters and history pages look realistic
+                LocalDateTime start = LocalDateTime.now().minusYears(3);
+                long spanSeconds = 3L * 365 * 24 * 3600;
+                Categorizer categorizer = Categorizer.read(conn);
+                try (PreparedStatement ps = conn.prepareStatement(TransactionImporter.INSERT_SQL)) {
+                    for (long t = 0; t < transactions; t++) {
+                        // mostly debits so balances stay positive and credits pass the balance check
+                        ps.setString(1, random.nextInt(10) < 7 ? "Debit" : "Credit");
+                        ps.setLong(2, Math.round(random.nextDouble() * 50_000));
+                        String description = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+                        ps.setString(3, description);
+                        ps.setString(4, email(random.nextInt(users)));
+                        ps.setString(5, start.plusSeconds(spanSeconds * t / Math.max(1, transactions)).format(TIMESTAMP));
+                        ps.setInt(6, categorizer.match(description));
+                        ps.addBatch();
+                        if ((t + 1) % SEED_BATCH == 0) {
+                            ps.executeBatch();
+                            conn.commit();
+                        }
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+                conn.setAutoCommit(true);
+
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("ANALYZE");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.example;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line and, unless told
+ * otherwise with {@code -rf}/{@code -rff}, writes results as JSON to
+ * {@code target/jmh-results.json} so runs can be compared between releases.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cli);
+        if (cli.getResultFormat().orElse(null) == null) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (cli.getResult().orElse(null) == null) {
+            builder.result("target/jmh-results.json");
+        }
+        if (cli.getIncludes().isEmpty()) {
+            builder.include(LedgerBenchmarks.class.getSimpleName());
+        }
+        // size the reader pool for the eight-thread *Contended benchmarks regardless of core count
+        builder.jvmArgsAppend("-Dledger.db.readers=8");
+
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
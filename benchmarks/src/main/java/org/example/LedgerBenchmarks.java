@@ -0,0 +1,145 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the DatabaseHandler hot paths against seeded databases.
+ *
+ * Every fork gets its own copy of the seeded database because DatabaseHandler binds
+ * its connection pool to {@code ledger.db.url} once per JVM. The {@code *Contended}
+ * variants run the same operation from eight threads to show how reads scale across
+ * the reader pool and how writes queue behind the single writer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerBenchmarks {
+
+    @Param({"1000", "100000", "1000000"})
+    public long transactions;
+
+    @Param({"10", "1000", "100000"})
+    public int users;
+
+    private Path database;
+    private Path exportFile;
+    private DatabaseHandler db;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        database = BenchmarkDatabase.prepare(users, transactions);
+        exportFile = Files.createTempFile("ledger-bench-export-", ".csv");
+        db = new DatabaseHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, SQLException {
+        DatabaseHandler.disconnectDatabase();
+        BenchmarkDatabase.delete(database);
+        Files.deleteIfExists(exportFile);
+    }
+
+    private String randomUser() {
+        return BenchmarkDatabase.email(ThreadLocalRandom.current().nextInt(users));
+    }
+
+    // ====== Reads ======
+
+    @Benchmark
+    public long getBalance() {
+        return db.getBalance(randomUser());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long getBalanceContended() {
+        return db.getBalance(randomUser());
+    }
+
+    @Benchmark
+    public TransactionHistory.Page showHistory() throws SQLException {
+        return TransactionHistory.firstPage(randomUser(), TransactionHistory.Filter.none(),
+                TransactionHistory.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public TransactionHistory.Page showHistoryContended() throws SQLException {
+        return TransactionHistory.firstPage(randomUser(), TransactionHistory.Filter.none(),
+                TransactionHistory.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CsvExporter.ExportResult exportToCSV() throws SQLException, IOException {
+        return CsvExporter.export(randomUser(), exportFile, null, null, false);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean validateUser() {
+        return db.validateUser(randomUser(), BenchmarkDatabase.PASSWORD);
+    }
+
+    // ====== Writes ======
+
+    @Benchmark
+    public void saveTransaction() {
+        DatabaseHandler.saveTransaction("Debit", 1250, "benchmark", randomUser());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void saveTransactionContended() {
+        DatabaseHandler.saveTransaction("Debit", 1250, "benchmark", randomUser());
+    }
+
+    /** Month-end sweep over every savings account; savings are refilled before each call. */
+    @State(Scope.Thread)
+    public static class SavingsState {
+        @Setup(Level.Invocation)
+        public void refill() throws SQLException {
+            try (ConnectionPool.Lease lease = DatabaseHandler.getPool().writer();
+                 Statement stmt = lease.connection().createStatement()) {
+                stmt.executeUpdate("UPDATE savings SET saved_amount = 500");
+                // forget the month's checkpoint so every invocation sweeps the full table
+                stmt.executeUpdate("DELETE FROM savings_sweeps");
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public void transferSavingsToBalance(SavingsState savings, Blackhole blackhole) {
+        db.transferSavingsToBalance();
+        blackhole.consume(savings);
+    }
+}
@@ -0,0 +1,292 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a seeded ledger with many concurrent users doing what the transaction menu
+ * offers, then reports throughput, SQLITE_BUSY and retry counts and latency percentiles
+ * per operation.
+ *
+ * Run with {@code java -cp benchmarks.jar org.example.LoadGenerator [--option value]...}:
+ * <pre>
+ *   --users 1000          seeded users (see BenchmarkDatabase)
+ *   --transactions 100000 seeded transactions
+ *   --clients 200         concurrent simulated users, one virtual thread each
+ *   --duration 30         seconds to run, or
+ *   --operations 0        total operations to run instead of a duration (0 = use duration)
+ *   --mix account=30,debit=25,credit=15,history=20,repay=5,savings=5
+ *   --loanUsers 1000      users given a loan up front, so repayments have work to do
+ *   --retries 3           retries of an operation that reports a failure, with backoff
+ *   --thinkMs 0           pause between one client's operations
+ * </pre>
+ * JVM properties such as {@code -Dledger.groupCommit.enabled=true} apply as usual.
+ */
+public class LoadGenerator {
+    private static final String DEFAULT_MIX = "account=30,debit=25,credit=15,history=20,repay=5,savings=5";
+
+    enum Operation {
+        ACCOUNT, DEBIT, CREDIT, HISTORY, REPAY, SAVINGS
+    }
+
+    enum Result {
+        OK, REJECTED, FAILED
+    }
+
+    private static final class Counters {
+        final OperationMetrics latency;
+        final LongAdder rejected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder retries = new LongAdder();
+
+        Counters(Operation operation) {
+            latency = Metrics.operation("load." + operation.name().toLowerCase());
+        }
+    }
+
+    private final DatabaseHandler db;
+    private final int users;
+    private final int loanUsers;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int retries;
+    private final long thinkMs;
+    private final Map<Operation, Counters> counters = new EnumMap<>(Operation.class);
+
+    private LoadGenerator(DatabaseHandler db, int users, int loanUsers, Map<Operation, Integer> mix,
+                          int retries, long thinkMs) {
+        this.db = db;
+        this.users = users;
+        this.loanUsers = loanUsers;
+        this.retries = retries;
+        this.thinkMs = thinkMs;
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+            counters.put(operations[i], new Counters(operations[i]));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        long transactions = Long.parseLong(options.getOrDefault("transactions", "100000"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "200"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        long operationBudget = Long.parseLong(options.getOrDefault("operations", "0"));
+        Map<Operation, Integer> mix = parseMix(options.getOrDefault("mix", DEFAULT_MIX));
+        int loanUsers = Math.min(users, Integer.parseInt(options.getOrDefault("loanUsers", "1000")));
+        int retries = Integer.parseInt(options.getOrDefault("retries", "3"));
+        long thinkMs = Long.parseLong(options.getOrDefault("thinkMs", "0"));
+
+        Path database = BenchmarkDatabase.prepare(users, transactions);
+        PrintStream console = System.out;
+        try {
+            // DatabaseHandler reports every action on stdout; at thousands of operations per
+            // second that printing would be most of what gets measured
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            DatabaseHandler db = new DatabaseHandler();
+            for (int u = 0; u < loanUsers; u++) {
+                db.applyLoan(BenchmarkDatabase.email(u), 100_000, 0.10, 24, Amortization.Method.FLAT);
+            }
+
+            LoadGenerator generator = new LoadGenerator(db, users, loanUsers, mix, retries, thinkMs);
+            console.printf(Locale.US, "Running %d clients against %d users (%d transactions), mix %s, %s%n",
+                    clients, users, transactions, mix,
+                    operationBudget > 0 ? operationBudget + " operations" : durationSeconds + " s");
+            long busyBefore = Metrics.busyErrors();
+            long elapsed = generator.run(clients, durationSeconds, operationBudget);
+            console.print(generator.report(elapsed, Metrics.busyErrors() - busyBefore));
+        } finally {
+            System.setOut(console);
+            DatabaseHandler.disconnectDatabase();
+            BenchmarkDatabase.delete(database);
+        }
+    }
+
+    /** Runs the clients until the duration or the operation budget is used up; returns the elapsed nanoseconds. */
+    long run(int clients, long durationSeconds, long operationBudget) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = operationBudget > 0 ? Long.MAX_VALUE : start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        AtomicLong remaining = new AtomicLong(operationBudget > 0 ? operationBudget : Long.MAX_VALUE);
+
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            threads.add(Thread.ofVirtual().name("load-client-" + c).start(() -> {
+                while (System.nanoTime() < deadline && remaining.getAndDecrement() > 0) {
+                    runOne(pick());
+                    if (thinkMs > 0) {
+                        try {
+                            Thread.sleep(thinkMs);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private Operation pick() {
+        int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void runOne(Operation operation) {
+        Counters counter = counters.get(operation);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String email = BenchmarkDatabase.email(operation == Operation.REPAY && loanUsers > 0
+                ? random.nextInt(loanUsers) : random.nextInt(users));
+
+        for (int attempt = 0; ; attempt++) {
+            Result result;
+            long start = System.nanoTime();
+            try {
+                result = execute(operation, email, random);
+            } catch (SQLException e) {
+                counter.latency.error(e);
+                result = Result.FAILED;
+            }
+            counter.latency.record(System.nanoTime() - start);
+
+            if (result == Result.REJECTED) {
+                counter.rejected.increment();
+            }
+            if (result != Result.FAILED) {
+                return;
+            }
+            if (attempt >= retries) {
+                counter.failed.increment();
+                return;
+            }
+            counter.retries.increment();
+            try {
+                Thread.sleep(1L << attempt);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // each operation does what the matching transaction menu entry does
+    private Result execute(Operation operation, String email, ThreadLocalRandom random) throws SQLException {
+        switch (operation) {
+            case ACCOUNT -> db.getAccountSnapshot(email);
+            case DEBIT -> {
+                if (db.isBlocked(email)) {
+                    return Result.REJECTED;
+                }
+                long amount = 100 + random.nextInt(50_000);
+                if (PostingRules.checkDebit(amount, "load debit") != null) {
+                    return Result.REJECTED;
+                }
+                if (!DatabaseHandler.saveTransaction("Debit", amount, "load debit", email)) {
+                    return Result.FAILED;
+                }
+                db.getBalance(email);
+            }
+            case CREDIT -> {
+                if (db.isBlocked(email)) {
+                    return Result.REJECTED;
+                }
+                long amount = 100 + random.nextInt(20_000);
+                if (PostingRules.checkCredit(amount, "load credit", db.getBalance(email)) != null) {
+                    return Result.REJECTED;
+                }
+                if (!DatabaseHandler.saveTransaction("Credit", amount, "load credit", email)) {
+                    return Result.FAILED;
+                }
+                db.processSavingsOnDebit(email, amount);
+            }
+            case HISTORY -> {
+                TransactionHistory.Page page = TransactionHistory.firstPage(email, TransactionHistory.Filter.none(),
+                        TransactionHistory.DEFAULT_PAGE_SIZE);
+                if (page.next() != null && random.nextBoolean()) {
+                    TransactionHistory.nextPage(email, TransactionHistory.Filter.none(),
+                            TransactionHistory.DEFAULT_PAGE_SIZE, page.next());
+                }
+            }
+            case REPAY -> {
+                long repaid = db.repayLoan(email);
+                return repaid < 0 ? Result.FAILED : repaid == 0 ? Result.REJECTED : Result.OK;
+            }
+            case SAVINGS -> db.activateSavings(email, 1 + random.nextInt(20));
+        }
+        return Result.OK;
+    }
+
+    String report(long elapsedNanos, long busyErrors) {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.US, "%n%-9s %10s %9s %9s %7s %8s %9s %9s %9s %9s%n",
+                "operation", "count", "ops/s", "rejected", "failed", "retries",
+                "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)"));
+        long total = 0;
+        long totalRetries = 0;
+        for (Map.Entry<Operation, Counters> entry : counters.entrySet()) {
+            Counters c = entry.getValue();
+            long count = c.latency.getCalls();
+            total += count;
+            totalRetries += c.retries.sum();
+            out.append(String.format(Locale.US, "%-9s %10d %9.1f %9d %7d %8d %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey().name().toLowerCase(), count, count / seconds, c.rejected.sum(), c.failed.sum(),
+                    c.retries.sum(), c.latency.percentileNanos(0.50) / 1e6, c.latency.percentileNanos(0.90) / 1e6,
+                    c.latency.percentileNanos(0.99) / 1e6, c.latency.getMaxMicros() / 1e3));
+        }
+        out.append(String.format(Locale.US, "%nTotal: %d operations in %.1f s (%.1f ops/s), "
+                        + "%d SQLITE_BUSY errors in the data layer, %d retries%n",
+                total, seconds, total / seconds, busyErrors, totalRetries));
+        return out.toString();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The operation mix has no positive weights: " + mix);
+        }
+        return weights;
+    }
+}
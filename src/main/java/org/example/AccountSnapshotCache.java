@@ -0,0 +1,146 @@
+package org.example;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through cache of each user's balance, savings and outstanding loans.
+ *
+ * A miss loads all three figures with one query. Writers keep cached entries exact:
+ * single postings and savings accruals adjust the entry in place once committed, and
+ * multi-statement writers (loans, imports, the savings sweep) drop the affected entries
+ * after their commit. Entries are evicted least-recently-used beyond
+ * {@code ledger.cache.maxEntries} and expire after {@code ledger.cache.ttlSeconds}, which
+ * also bounds how stale an entry can get if another process writes to the database.
+ */
+public class AccountSnapshotCache {
+    private static final int MAX_ENTRIES = Integer.getInteger("ledger.cache.maxEntries", 100_000);
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong("ledger.cache.ttlSeconds", 30));
+    private static final OperationMetrics SNAPSHOT_LOAD = Metrics.operation("account.snapshot.load");
+
+    private static final String LOAD_SQL = """
+        SELECT (SELECT balance FROM balances WHERE user_email = ?1),
+               (SELECT saved_amount FROM savings WHERE user_email = ?1 LIMIT 1),
+               (SELECT COALESCE(SUM(outstanding_balance), 0) FROM loans
+                WHERE user_email = ?1 AND status = 'active' AND outstanding_balance > 0)
+        """;
+
+    /** Amounts in minor units. */
+    public record AccountSnapshot(long balance, long savings, long loanBalance) {
+    }
+
+    private record Entry(AccountSnapshot snapshot, long loadedNanos) {
+    }
+
+    // bumped by every change, so a load that raced with a write is returned but not cached
+    private static final AtomicLong modifications = new AtomicLong();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+    private static final LongAdder expirations = new LongAdder();
+
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= MAX_ENTRIES) {
+                return false;
+            }
+            evictions.increment();
+            return true;
+        }
+    };
+
+    @SuppressWarnings("try")
+    public static AccountSnapshot get(ConnectionPool pool, String email) throws SQLException {
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.get(email);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedNanos() < TTL_NANOS) {
+                    hits.increment();
+                    return entry.snapshot();
+                }
+                ENTRIES.remove(email);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+
+        long version = modifications.get();
+        AccountSnapshot snapshot;
+        try (OperationMetrics.Timer timer = SNAPSHOT_LOAD.time();
+             ConnectionPool.Lease lease = pool.reader()) {
+            PreparedStatement ps = lease.prepare(LOAD_SQL);
+            ps.setString(1, email);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                snapshot = new AccountSnapshot(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+            }
+        } catch (SQLException e) {
+            SNAPSHOT_LOAD.error(e);
+            throw e;
+        }
+
+        synchronized (ENTRIES) {
+            if (modifications.get() == version) {
+                ENTRIES.put(email, new Entry(snapshot, System.nanoTime()));
+            }
+        }
+        return snapshot;
+    }
+
+    /** A committed 'Debit' (adds) or 'Credit' (subtracts) posting for {@code email}. */
+    static void posted(String email, String type, long amount) {
+        long delta = "Debit".equals(type) ? amount : "Credit".equals(type) ? -amount : 0;
+        update(email, s -> new AccountSnapshot(s.balance() + delta, s.savings(), s.loanBalance()));
+    }
+
+    /** A committed change of {@code delta} to the savings pot of {@code email}. */
+    static void saved(String email, long delta) {
+        update(email, s -> new AccountSnapshot(s.balance(), s.savings() + delta, s.loanBalance()));
+    }
+
+    private static void update(String email, UnaryOperator<AccountSnapshot> change) {
+        synchronized (ENTRIES) {
+            modifications.incrementAndGet();
+            ENTRIES.computeIfPresent(email, (key, entry) -> new Entry(change.apply(entry.snapshot()), entry.loadedNanos()));
+        }
+    }
+
+    public static void invalidate(String email) {
+        synchronized (ENTRIES) {
+            modifications.incrementAndGet();
+            ENTRIES.remove(email);
+        }
+    }
+
+    public static void invalidateAll() {
+        synchronized (ENTRIES) {
+            modifications.incrementAndGet();
+            ENTRIES.clear();
+        }
+    }
+
+    public static double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public static String summary() {
+        int size;
+        synchronized (ENTRIES) {
+            size = ENTRIES.size();
+        }
+        return String.format(Locale.US, "Account cache: %d entries, %d hits, %d misses (%.1f%% hit rate), "
+                        + "%d evictions, %d expirations",
+                size, hits.sum(), misses.sum(), hitRate() * 100, evictions.sum(), expirations.sum());
+    }
+}
@@ -0,0 +1,189 @@
+package org.example;
+
+import java.util.stream.IntStream;
+
+/**
+ * Loan amortization for flat-rate and reducing-balance loans.
+ *
+ * A schedule is computed into a reusable {@link Schedule} of parallel primitive arrays,
+ * so working out an installment allocates nothing; a scenario costs one pass over its
+ * months. {@link #whatIf} evaluates many scenarios in parallel, one workspace per worker
+ * thread, for comparing offers and stress-testing a portfolio.
+ *
+ * Rates follow the convention applyLoan has always used for flat loans: the rate is
+ * charged once on the principal over the whole term. Reducing-balance loans treat it
+ * as an annual nominal rate charged monthly on the outstanding principal.
+ */
+public final class Amortization {
+
+    public enum Method {
+        FLAT, REDUCING
+    }
+
+    /**
+     * One set of loan terms. {@code extraMonth} / {@code extraAmount} add a lump-sum early
+     * repayment on top of that month's installment; {@code rateChangeMonth} / {@code newRate}
+     * switch the rate from that month on. Use 0 for a month to disable either. A flat loan
+     * repaid early is not charged the interest of the months it no longer runs.
+     */
+    public record Scenario(Method method, double principal, double rate, int months,
+                           int extraMonth, double extraAmount, int rateChangeMonth, double newRate) {
+        public static Scenario of(Method method, double principal, double rate, int months) {
+            return new Scenario(method, principal, rate, months, 0, 0, 0, 0);
+        }
+
+        public Scenario withEarlyRepayment(int month, double amount) {
+            return new Scenario(method, principal, rate, months, month, amount, rateChangeMonth, newRate);
+        }
+
+        public Scenario withRateChange(int month, double rate) {
+            return new Scenario(method, principal, this.rate, months, extraMonth, extraAmount, month, rate);
+        }
+    }
+
+    /** Month-by-month schedule; index {@code i} is installment {@code i + 1}. Reused across computations. */
+    public static final class Schedule {
+        double[] payment = new double[0];
+        double[] interest = new double[0];
+        double[] principal = new double[0];
+        double[] balance = new double[0];
+        int length;
+
+        void ensureCapacity(int months) {
+            if (payment.length < months) {
+                payment = new double[months];
+                interest = new double[months];
+                principal = new double[months];
+                balance = new double[months];
+            }
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public double payment(int i) {
+            return payment[i];
+        }
+
+        public double interest(int i) {
+            return interest[i];
+        }
+
+        public double principal(int i) {
+            return principal[i];
+        }
+
+        /** Principal still outstanding after installment {@code i}. */
+        public double balance(int i) {
+            return balance[i];
+        }
+
+        public double totalPaid() {
+            double total = 0;
+            for (int i = 0; i < length; i++) {
+                total += payment[i];
+            }
+            return total;
+        }
+
+        public double totalInterest() {
+            double total = 0;
+            for (int i = 0; i < length; i++) {
+                total += interest[i];
+            }
+            return total;
+        }
+    }
+
+    /** Column-wise results of a {@link #whatIf} batch; index {@code i} belongs to scenario {@code i}. */
+    public record BatchResult(double[] firstPayment, double[] totalPaid, double[] totalInterest, int[] payoffMonth) {
+    }
+
+    private static final ThreadLocal<Schedule> WORKSPACE = ThreadLocal.withInitial(Schedule::new);
+
+    private Amortization() {
+    }
+
+    public static Schedule compute(Scenario scenario) {
+        return compute(scenario, new Schedule());
+    }
+
+    /** Computes {@code scenario} into {@code into}, overwriting what it held, and returns it. */
+    public static Schedule compute(Scenario s, Schedule into) {
+        if (s.months() <= 0 || s.principal() <= 0) {
+            throw new IllegalArgumentException("Loan needs a positive principal and term");
+        }
+        into.ensureCapacity(s.months());
+
+        boolean flat = s.method() == Method.FLAT;
+        double rate = s.rate();
+        double balance = s.principal();
+        // flat loans charge the same interest every month: rate * principal spread over the term
+        double flatInterest = cents(s.principal() * rate / s.months());
+        double flatTotal = s.principal() * rate; // the last month absorbs the rounding, so totals stay exact
+        double charged = 0;
+        double payment = flat
+                ? cents(s.principal() / s.months()) + flatInterest
+                : annuity(balance, rate / 12, s.months());
+
+        int m = 0;
+        while (m < s.months() && balance > 0.005) {
+            int month = m + 1;
+            if (month == s.rateChangeMonth()) {
+                rate = s.newRate();
+                if (flat) {
+                    double principalPart = payment - flatInterest;
+                    flatInterest = cents(s.principal() * rate / s.months());
+                    flatTotal = charged + s.principal() * rate * (s.months() - m) / s.months();
+                    payment = principalPart + flatInterest;
+                } else {
+                    payment = annuity(balance, rate / 12, s.months() - m);
+                }
+            }
+
+            double interest = !flat ? cents(balance * rate / 12)
+                    : month == s.months() ? cents(flatTotal - charged) : flatInterest;
+            double principal = month == s.months() ? balance : Math.min(payment - interest, balance);
+            if (month == s.extraMonth()) {
+                principal = Math.min(balance, principal + s.extraAmount());
+            }
+            balance = cents(balance - principal);
+            charged += interest;
+
+            into.payment[m] = cents(principal + interest);
+            into.interest[m] = interest;
+            into.principal[m] = principal;
+            into.balance[m] = balance;
+            m++;
+        }
+        into.length = m;
+        return into;
+    }
+
+    /** Evaluates every scenario in parallel; each worker reuses one schedule workspace. */
+    public static BatchResult whatIf(Scenario[] scenarios) {
+        int n = scenarios.length;
+        BatchResult result = new BatchResult(new double[n], new double[n], new double[n], new int[n]);
+        IntStream.range(0, n).parallel().forEach(i -> {
+            Schedule schedule = compute(scenarios[i], WORKSPACE.get());
+            result.firstPayment()[i] = schedule.payment(0);
+            result.totalPaid()[i] = schedule.totalPaid();
+            result.totalInterest()[i] = schedule.totalInterest();
+            result.payoffMonth()[i] = schedule.length();
+        });
+        return result;
+    }
+
+    // level monthly installment that clears the balance over the remaining months
+    private static double annuity(double balance, double monthlyRate, int months) {
+        if (monthlyRate == 0) {
+            return cents(balance / months);
+        }
+        return cents(balance * monthlyRate / (1 - Math.pow(1 + monthlyRate, -months)));
+    }
+
+    private static double cents(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
@@ -0,0 +1,205 @@
+package org.example;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Password hashing and verification off the caller's thread.
+ *
+ * Each request runs on its own virtual thread, but only {@code ledger.auth.maxConcurrentHashes}
+ * bcrypt computations run at once, so a login burst cannot take every core away from the
+ * rest of the application. At most {@code ledger.auth.maxPending} requests may wait for a
+ * permit; beyond that, and for anyone who waited longer than {@code ledger.auth.waitMs},
+ * the answer is {@link Outcome#BUSY} instead of an ever-growing queue.
+ *
+ * New hashes use the work factor {@code ledger.auth.bcryptCost}. A successful login with
+ * a hash of a lower cost rehashes the password and stores the stronger hash, so raising
+ * the setting upgrades users as they next sign in.
+ */
+public class Authenticator {
+    public static final int BCRYPT_COST = Integer.getInteger("ledger.auth.bcryptCost", 10);
+    private static final int MAX_CONCURRENT_HASHES = Integer.getInteger("ledger.auth.maxConcurrentHashes",
+            Runtime.getRuntime().availableProcessors());
+    private static final int MAX_PENDING = Integer.getInteger("ledger.auth.maxPending", 1024);
+    private static final long WAIT_MS = Long.getLong("ledger.auth.waitMs", 5_000);
+
+    private static final OperationMetrics AUTH_LOGIN = Metrics.operation("auth.login");
+    private static final OperationMetrics AUTH_BCRYPT = Metrics.operation("auth.bcrypt");
+
+    public enum Outcome {
+        OK, UNKNOWN_USER, WRONG_PASSWORD, BUSY
+    }
+
+    // checked instead of a stored hash when the email is unknown; same cost as new hashes
+    private static final String UNKNOWN_USER_HASH = BCrypt.hashpw("", BCrypt.gensalt(BCRYPT_COST));
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    private static final Semaphore HASH_PERMITS = new Semaphore(MAX_CONCURRENT_HASHES, true);
+    private static final AtomicInteger pending = new AtomicInteger();
+    private static final LongAdder hashes = new LongAdder();
+    private static final LongAdder hashNanos = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final LongAdder rehashed = new LongAdder();
+
+    /**
+     * Checks {@code password} against the stored hash with one lookup by email. The future
+     * completes exceptionally only if the database cannot be read.
+     */
+    @SuppressWarnings("try")
+    public static CompletableFuture<Outcome> authenticate(ConnectionPool pool, String email, String password) {
+        return submit(() -> {
+            try (OperationMetrics.Timer timer = AUTH_LOGIN.time()) {
+                String storedHash;
+                try (ConnectionPool.Lease lease = pool.reader()) {
+                    PreparedStatement ps = lease.prepare("SELECT password FROM users WHERE email = ?");
+                    ps.setString(1, email);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        storedHash = rs.next() ? rs.getString(1) : null;
+                    }
+                } catch (SQLException e) {
+                    AUTH_LOGIN.error(e);
+                    throw e;
+                }
+                // an unknown email still pays for one bcrypt check, so response times do not
+                // reveal which emails are registered
+                String checkedHash = storedHash == null ? UNKNOWN_USER_HASH : storedHash;
+
+                String upgraded = null;
+                if (!acquire()) {
+                    return Outcome.BUSY;
+                }
+                try {
+                    boolean matches = timedHash(() -> BCrypt.checkpw(password, checkedHash));
+                    if (storedHash == null) {
+                        return Outcome.UNKNOWN_USER;
+                    }
+                    if (!matches) {
+                        return Outcome.WRONG_PASSWORD;
+                    }
+                    if (cost(storedHash) < BCRYPT_COST) {
+                        upgraded = timedHash(() -> BCrypt.hashpw(password, BCrypt.gensalt(BCRYPT_COST)));
+                    }
+                } finally {
+                    HASH_PERMITS.release();
+                }
+
+                if (upgraded != null) {
+                    upgrade(pool, email, storedHash, upgraded);
+                }
+                return Outcome.OK;
+            }
+        }, Outcome.BUSY);
+    }
+
+    /** Hashes a new password at the configured cost; completes with null when too busy. */
+    public static CompletableFuture<String> hash(String password) {
+        return submit(() -> {
+            if (!acquire()) {
+                return null;
+            }
+            try {
+                return timedHash(() -> BCrypt.hashpw(password, BCrypt.gensalt(BCRYPT_COST)));
+            } finally {
+                HASH_PERMITS.release();
+            }
+        }, null);
+    }
+
+    @FunctionalInterface
+    private interface Task<T> {
+        T run() throws Exception;
+    }
+
+    // runs task on a virtual thread, or answers whenBusy straight away if too many are already waiting
+    private static <T> CompletableFuture<T> submit(Task<T> task, T whenBusy) {
+        if (pending.incrementAndGet() > MAX_PENDING) {
+            pending.decrementAndGet();
+            rejected.increment();
+            return CompletableFuture.completedFuture(whenBusy);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        EXECUTOR.execute(() -> {
+            try {
+                result.complete(task.run());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+        return result;
+    }
+
+    private static boolean acquire() throws InterruptedException {
+        if (HASH_PERMITS.tryAcquire(WAIT_MS, TimeUnit.MILLISECONDS)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    private static <T> T timedHash(Task<T> hashing) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return hashing.run();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            AUTH_BCRYPT.record(elapsed);
+            hashes.increment();
+            hashNanos.add(elapsed);
+        }
+    }
+
+    // only replaces the hash the login was checked against, so a concurrent password change wins
+    private static void upgrade(ConnectionPool pool, String email, String oldHash, String newHash) {
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            PreparedStatement ps = lease.prepare("UPDATE users SET password = ? WHERE email = ? AND password = ?");
+            ps.setString(1, newHash);
+            ps.setString(2, email);
+            ps.setString(3, oldHash);
+            if (ps.executeUpdate() == 1) {
+                rehashed.increment();
+            }
+        } catch (SQLException e) {
+            // the login itself succeeded; the upgrade is retried on the next one
+            System.err.println("Error upgrading password hash: " + e.getMessage());
+        }
+    }
+
+    /** The work factor of a {@code $2a$NN$...} hash, or 0 if it cannot be read. */
+    static int cost(String hash) {
+        if (hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$') {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** Sustainable hashes per second: how many of the permitted hashes fit in a second at the mean cost. */
+    public static double hashesPerSecond() {
+        long count = hashes.sum();
+        return count == 0 ? 0 : MAX_CONCURRENT_HASHES * 1e9 * count / hashNanos.sum();
+    }
+
+    public static String summary() {
+        long count = hashes.sum();
+        return String.format(Locale.US, "Auth: %d bcrypt hashes at cost %d (mean %.1f ms, ~%.0f hashes/sec on %d permits), "
+                        + "%d rejected as busy, %d hashes upgraded",
+                count, BCRYPT_COST, count == 0 ? 0 : hashNanos.sum() / 1e6 / count, hashesPerSecond(),
+                MAX_CONCURRENT_HASHES, rejected.sum(), rehashed.sum());
+    }
+}
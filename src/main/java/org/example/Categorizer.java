@@ -0,0 +1,265 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Assigns each posting a spending category when it is written.
+ *
+ * The dictionary lives in {@code categories} (name and priority) and
+ * {@code category_keywords} (keyword to category). All keywords are compiled into one
+ * Aho-Corasick automaton, so a description is categorized in a single pass over its
+ * characters however many keywords there are. Matching is a case-insensitive substring
+ * test, like {@code LIKE '%keyword%'}; when several categories match, the lowest priority
+ * wins, and a description that matches nothing is {@link #OTHER}.
+ *
+ * Changing the dictionary, including renaming a category, takes effect after
+ * {@link #recategorizeAll}, which also recategorizes every existing transaction and
+ * rebuilds the reporting rollups.
+ */
+public class Categorizer {
+    public static final int OTHER = 1;
+
+    private static volatile Categorizer current = new Categorizer(List.of(new Category(OTHER, "Other", 0)), Map.of());
+
+    record Category(int id, String name, int priority) {
+    }
+
+    private final Map<Integer, String> names = new HashMap<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    // keyword characters map to columns 1..width-1 of the transition table; every other character is column 0
+    private final int[] asciiColumn = new int[128];
+    private final Map<Character, Integer> otherColumns = new HashMap<>();
+    private final int width;
+    private final int[] next;
+    // per state, the best (lowest) rank of any keyword ending there, or NONE; ranks index rankedIds
+    private final int[] best;
+    private final int[] rankedIds;
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    Categorizer(List<Category> categories, Map<String, Integer> keywords) {
+        List<Category> ranked = new ArrayList<>(categories);
+        ranked.sort((a, b) -> a.priority() != b.priority()
+                ? Integer.compare(a.priority(), b.priority()) : Integer.compare(a.id(), b.id()));
+        rankedIds = new int[ranked.size()];
+        Map<Integer, Integer> rankOf = new HashMap<>();
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            Category category = ranked.get(rank);
+            rankedIds[rank] = category.id();
+            rankOf.put(category.id(), rank);
+            names.put(category.id(), category.name());
+            ids.put(category.name().toLowerCase(), category.id());
+        }
+
+        // the trie, built with growable per-state maps before it is flattened into the table
+        List<Map<Integer, Integer>> trie = new ArrayList<>();
+        List<Integer> output = new ArrayList<>();
+        trie.add(new HashMap<>());
+        output.add(NONE);
+        int columns = 1;
+        for (Map.Entry<String, Integer> keyword : keywords.entrySet()) {
+            Integer rank = rankOf.get(keyword.getValue());
+            if (rank == null || keyword.getKey().isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.getKey().length(); i++) {
+                char c = fold(keyword.getKey().charAt(i));
+                int column = column(c);
+                if (column == 0) {
+                    column = columns++;
+                    if (c < 128) {
+                        asciiColumn[c] = column;
+                    } else {
+                        otherColumns.put(c, column);
+                    }
+                }
+                Integer target = trie.get(state).get(column);
+                if (target == null) {
+                    target = trie.size();
+                    trie.add(new HashMap<>());
+                    output.add(NONE);
+                    trie.get(state).put(column, target);
+                }
+                state = target;
+            }
+            output.set(state, Math.min(output.get(state), rank));
+        }
+
+        // breadth-first over the trie: missing transitions follow the failure link, and each
+        // state inherits the best match of the longest suffix that is also a state
+        width = columns;
+        next = new int[trie.size() * width];
+        best = new int[trie.size()];
+        int[] failure = new int[trie.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        best[0] = output.get(0);
+        for (int column = 0; column < width; column++) {
+            Integer target = trie.get(0).get(column);
+            if (target != null) {
+                failure[target] = 0;
+                queue.add(target);
+            }
+            next[column] = target != null ? target : 0;
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            best[state] = Math.min(output.get(state), best[failure[state]]);
+            for (int column = 0; column < width; column++) {
+                Integer target = trie.get(state).get(column);
+                if (target != null) {
+                    failure[target] = next[failure[state] * width + column];
+                    queue.add(target);
+                    next[state * width + column] = target;
+                } else {
+                    next[state * width + column] = next[failure[state] * width + column];
+                }
+            }
+        }
+    }
+
+    /** The category id for a description under the dictionary currently loaded. */
+    public static int categorize(String description) {
+        return current.match(description);
+    }
+
+    public static Categorizer current() {
+        return current;
+    }
+
+    int match(CharSequence description) {
+        int state = 0;
+        int found = NONE;
+        for (int i = 0; i < description.length(); i++) {
+            state = next[state * width + column(fold(description.charAt(i)))];
+            if (best[state] < found) {
+                found = best[state];
+                if (found == 0) {
+                    break;
+                }
+            }
+        }
+        return found == NONE ? OTHER : rankedIds[found];
+    }
+
+    /** The id of the category with this name, ignoring case, or null if there is none. */
+    public Integer idOf(String name) {
+        return ids.get(name.toLowerCase());
+    }
+
+    public String nameOf(int id) {
+        return names.getOrDefault(id, names.get(OTHER));
+    }
+
+    private int column(char c) {
+        return c < 128 ? asciiColumn[c] : otherColumns.getOrDefault(c, 0);
+    }
+
+    // LIKE only folds ASCII letters, so matching does the same
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /** Loads the dictionary and makes it the one new postings are categorized with. */
+    static void load(ConnectionPool pool) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.reader()) {
+            current = read(lease.connection());
+        }
+    }
+
+    static Categorizer read(Connection conn) throws SQLException {
+        List<Category> categories = new ArrayList<>();
+        Map<String, Integer> keywords = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT id, name, priority FROM categories")) {
+                while (rs.next()) {
+                    categories.add(new Category(rs.getInt(1), rs.getString(2), rs.getInt(3)));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT keyword, category_id FROM category_keywords")) {
+                while (rs.next()) {
+                    keywords.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+        }
+        return new Categorizer(categories, keywords);
+    }
+
+    /**
+     * Reloads the dictionary and recategorizes every transaction with it, then rebuilds the
+     * reporting rollups, all in one transaction. The rollups are keyed by category name, which
+     * the triggers look up as they fire, so after a rename they could no longer find the rows
+     * of older postings; rebuilding puts every posting under its current name. Returns the
+     * number of transactions whose category changed.
+     */
+    public static int recategorizeAll(ConnectionPool pool) throws SQLException {
+        int changed;
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false);
+            try {
+                Categorizer categorizer = read(conn);
+                changed = backfill(conn, categorizer);
+                ReportingRollups.rebuild(conn, ReportingRollups.CategorySource.STORED);
+                conn.commit();
+                current = categorizer;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        System.out.println("Recategorized " + changed + " transactions.");
+        return changed;
+    }
+
+    /**
+     * Sets category_id on every transaction in the caller's transaction. Ledgers repeat
+     * the same few descriptions, so each distinct description is categorized once, in
+     * parallel, and the results are applied with a single joined UPDATE.
+     */
+    static int backfill(Connection conn, Categorizer categorizer) throws SQLException {
+        List<String> descriptions = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT DISTINCT description FROM transactions")) {
+            while (rs.next()) {
+                descriptions.add(rs.getString(1));
+            }
+        }
+        int[] categories = new int[descriptions.size()];
+        Arrays.parallelSetAll(categories, i -> categorizer.match(descriptions.get(i)));
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TEMP TABLE IF NOT EXISTS description_categories " +
+                    "(description TEXT PRIMARY KEY, category_id INTEGER NOT NULL)");
+            stmt.executeUpdate("DELETE FROM temp.description_categories");
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO temp.description_categories (description, category_id) VALUES (?, ?)")) {
+                for (int i = 0; i < categories.length; i++) {
+                    insert.setString(1, descriptions.get(i));
+                    insert.setInt(2, categories[i]);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            int changed = stmt.executeUpdate("UPDATE transactions SET category_id = c.category_id " +
+                    "FROM temp.description_categories c " +
+                    "WHERE c.description = transactions.description AND transactions.category_id IS NOT c.category_id");
+            stmt.executeUpdate("DROP TABLE temp.description_categories");
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes every transaction to a column-oriented binary file for analytics; read it back
+ * with {@link ColumnarReader}, which needs no database.
+ *
+ * Layout, all multi-byte fixed-width values big-endian:
+ * <pre>
+ *   MAGIC
+ *   block*        one chunk per column (see Column), rows in id order
+ *   footer        version, dictionaries, category names, then per block its offset,
+ *                 row count, chunk lengths and min/max of id, timestamp and amount
+ *   long          footer offset
+ *   MAGIC
+ * </pre>
+ * Within a block, ids and timestamps (epoch seconds, UTC) are zigzag varints of the delta
+ * from the previous row, amounts (minor units) are zigzag varints, and type, user and
+ * description are varint codes into file-wide dictionaries (0 is null). Each block decodes
+ * on its own, and the stats let a reader skip blocks outside a date range unread.
+ */
+public class ColumnarExporter {
+    static final byte[] MAGIC = "LDGRCOL1".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = Integer.getInteger("ledger.export.columnar.blockRows", 65_536);
+    // rows whose timestamp cannot be read; they match no date range
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    enum Column {
+        ID, TIMESTAMP, AMOUNT, TYPE, USER, DESCRIPTION, CATEGORY
+    }
+
+    private static final OperationMetrics EXPORT_COLUMNAR = Metrics.operation("export.columnar");
+
+    public record ExportResult(long rows, int blocks, long bytes, long elapsedNanos) {
+    }
+
+    @SuppressWarnings("try")
+    public static ExportResult export(ConnectionPool pool, Path output) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Dictionary types = new Dictionary();
+        Dictionary users = new Dictionary();
+        Dictionary descriptions = new Dictionary();
+        Map<Integer, String> categories = new HashMap<>();
+        List<BlockInfo> blocks = new ArrayList<>();
+        long rows = 0;
+
+        try (OperationMetrics.Timer timer = EXPORT_COLUMNAR.time();
+             ConnectionPool.Lease lease = pool.reader();
+             Statement stmt = lease.connection().createStatement();
+             FileChannel file = FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            try (ResultSet rs = stmt.executeQuery("SELECT id, name FROM categories")) {
+                while (rs.next()) {
+                    categories.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+
+            long offset = write(file, ByteBuffer.wrap(MAGIC), 0);
+            Block block = new Block();
+            // one read transaction, so the file is a consistent snapshot of the ledger
+            try (ResultSet rs = stmt.executeQuery("SELECT id, timestamp, amount, type, user_email, description, " +
+                    "category_id FROM transactions ORDER BY id")) {
+                while (rs.next()) {
+                    block.add(rs.getLong(1), epochSeconds(rs.getString(2)), rs.getLong(3),
+                            types.code(rs.getString(4)), users.code(rs.getString(5)),
+                            descriptions.code(rs.getString(6)), rs.getInt(7));
+                    rows++;
+                    if (block.rows == BLOCK_ROWS) {
+                        offset = block.flush(file, offset, blocks);
+                        block = new Block();
+                    }
+                }
+            }
+            if (block.rows > 0) {
+                offset = block.flush(file, offset, blocks);
+            }
+
+            ByteSink footer = new ByteSink(1 << 16);
+            footer.putInt(VERSION);
+            types.writeTo(footer);
+            users.writeTo(footer);
+            descriptions.writeTo(footer);
+            footer.putVarint(categories.size());
+            for (Map.Entry<Integer, String> category : categories.entrySet()) {
+                footer.putVarint(category.getKey());
+                footer.putString(category.getValue());
+            }
+            footer.putVarint(blocks.size());
+            for (BlockInfo info : blocks) {
+                info.writeTo(footer);
+            }
+            footer.putLong(offset);
+            footer.put(MAGIC);
+            offset = write(file, footer.buffer(), offset);
+            return new ExportResult(rows, blocks.size(), offset, System.nanoTime() - start);
+        } catch (SQLException | IOException e) {
+            EXPORT_COLUMNAR.error(e);
+            throw e;
+        }
+    }
+
+    public static void report(ExportResult result, Path output) {
+        double seconds = result.elapsedNanos() / 1e9;
+        System.out.printf(Locale.US, "Exported %d transactions in %d blocks to %s (%.1f MB, %.1f bytes/row, %.2f s)%n",
+                result.rows(), result.blocks(), output, result.bytes() / 1e6,
+                result.rows() == 0 ? 0.0 : (double) result.bytes() / result.rows(), seconds);
+    }
+
+    private static long write(FileChannel file, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            offset += file.write(buffer);
+        }
+        return offset;
+    }
+
+    /**
+     * SQLite's "YYYY-MM-DD HH:MM:SS" (UTC) or a bare date as epoch seconds; parsed by hand
+     * because this runs once per row.
+     */
+    static long epochSeconds(String timestamp) {
+        if (timestamp == null || timestamp.length() < 10 || timestamp.charAt(4) != '-' || timestamp.charAt(7) != '-') {
+            return NO_TIMESTAMP;
+        }
+        int year = digits(timestamp, 0, 4);
+        int month = digits(timestamp, 5, 2);
+        int day = digits(timestamp, 8, 2);
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        if (timestamp.length() >= 19) {
+            hour = digits(timestamp, 11, 2);
+            minute = digits(timestamp, 14, 2);
+            second = digits(timestamp, 17, 2);
+        }
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()
+                || hour < 0 || minute < 0 || second < 0) {
+            return NO_TIMESTAMP;
+        }
+        return LocalDate.of(year, month, day).toEpochDay() * 86_400 + hour * 3_600L + minute * 60L + second;
+    }
+
+    private static int digits(String s, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /** Distinct strings in order of first appearance; code 0 stands for null. */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                values.add(value);
+                code = values.size();
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        void writeTo(ByteSink out) {
+            out.putVarint(values.size());
+            for (String value : values) {
+                out.putString(value);
+            }
+        }
+    }
+
+    record BlockInfo(long offset, int rows, int[] lengths, long minId, long maxId,
+                     long minTimestamp, long maxTimestamp, long minAmount, long maxAmount) {
+        void writeTo(ByteSink out) {
+            out.putLong(offset);
+            out.putInt(rows);
+            for (int length : lengths) {
+                out.putInt(length);
+            }
+            out.putLong(minId);
+            out.putLong(maxId);
+            out.putLong(minTimestamp);
+            out.putLong(maxTimestamp);
+            out.putLong(minAmount);
+            out.putLong(maxAmount);
+        }
+    }
+
+    /** Accumulates one block's column chunks and stats. */
+    private static final class Block {
+        private final ByteSink[] columns = new ByteSink[Column.values().length];
+        private int rows;
+        private long previousId;
+        private long previousTimestamp;
+        private long minId = Long.MAX_VALUE;
+        private long maxId = Long.MIN_VALUE;
+        private long minTimestamp = Long.MAX_VALUE;
+        private long maxTimestamp = Long.MIN_VALUE;
+        private long minAmount = Long.MAX_VALUE;
+        private long maxAmount = Long.MIN_VALUE;
+
+        Block() {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new ByteSink(BLOCK_ROWS * 2);
+            }
+        }
+
+        void add(long id, long timestamp, long amount, int type, int user, int description, int category) {
+            // deltas wrap on overflow (e.g. next to NO_TIMESTAMP), and so does decoding, so they stay exact
+            columns[Column.ID.ordinal()].putVarint(zigzag(id - previousId));
+            columns[Column.TIMESTAMP.ordinal()].putVarint(zigzag(timestamp - previousTimestamp));
+            columns[Column.AMOUNT.ordinal()].putVarint(zigzag(amount));
+            columns[Column.TYPE.ordinal()].putVarint(type);
+            columns[Column.USER.ordinal()].putVarint(user);
+            columns[Column.DESCRIPTION.ordinal()].putVarint(description);
+            columns[Column.CATEGORY.ordinal()].putVarint(category);
+            previousId = id;
+            previousTimestamp = timestamp;
+            rows++;
+
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+            if (timestamp != NO_TIMESTAMP) {
+                minTimestamp = Math.min(minTimestamp, timestamp);
+                maxTimestamp = Math.max(maxTimestamp, timestamp);
+            }
+            minAmount = Math.min(minAmount, amount);
+            maxAmount = Math.max(maxAmount, amount);
+        }
+
+        long flush(FileChannel file, long offset, List<BlockInfo> blocks) throws IOException {
+            int[] lengths = new int[columns.length];
+            long position = offset;
+            for (int i = 0; i < columns.length; i++) {
+                lengths[i] = columns[i].size();
+                position = write(file, columns[i].buffer(), position);
+            }
+            blocks.add(new BlockInfo(offset, rows, lengths, minId, maxId, minTimestamp, maxTimestamp,
+                    minAmount, maxAmount));
+            return position;
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /** Growable byte array with the encoders the format uses. */
+    static final class ByteSink {
+        private byte[] bytes;
+        private int size;
+
+        ByteSink(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void put(byte[] values) {
+            ensure(values.length);
+            System.arraycopy(values, 0, bytes, size, values.length);
+            size += values.length;
+        }
+
+        /** Unsigned LEB128: seven bits per byte, high bit set on all but the last. */
+        void putVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void putString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(utf8.length);
+            put(utf8);
+        }
+
+        int size() {
+            return size;
+        }
+
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(bytes, 0, size);
+        }
+    }
+}
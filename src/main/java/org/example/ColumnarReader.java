@@ -0,0 +1,270 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates over a file written by {@link ColumnarExporter} without a database.
+ *
+ * The file is memory-mapped one block at a time, and an aggregate only decodes the column
+ * chunks it needs: balances read type, user and amount, and never touch the descriptions.
+ * With a date range, blocks whose timestamp stats fall outside it are skipped unread.
+ *
+ * Run with {@code java -cp ledger.jar org.example.ColumnarReader file [fromDate toDate]}
+ * for a summary of balances and spending by category.
+ */
+public class ColumnarReader implements AutoCloseable {
+    private static final int COLUMNS = ColumnarExporter.Column.values().length;
+
+    private final FileChannel file;
+    private final String[] types;
+    private final String[] users;
+    private final Map<Integer, String> categories = new HashMap<>();
+    private final Block[] blocks;
+
+    private record Block(long offset, int rows, int[] lengths, long minTimestamp, long maxTimestamp) {
+        long columnOffset(ColumnarExporter.Column column) {
+            long position = offset;
+            for (int i = 0; i < column.ordinal(); i++) {
+                position += lengths[i];
+            }
+            return position;
+        }
+    }
+
+    public ColumnarReader(Path path) throws IOException {
+        file = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = file.size();
+            int trailer = 8 + ColumnarExporter.MAGIC.length;
+            if (size < ColumnarExporter.MAGIC.length + trailer
+                    || !Arrays.equals(magic(file.map(FileChannel.MapMode.READ_ONLY, 0, ColumnarExporter.MAGIC.length)),
+                    ColumnarExporter.MAGIC)) {
+                throw new IOException(path + " is not a columnar ledger export");
+            }
+            MappedByteBuffer tail = file.map(FileChannel.MapMode.READ_ONLY, size - trailer, trailer);
+            long footerOffset = tail.getLong();
+            if (!Arrays.equals(magic(tail), ColumnarExporter.MAGIC)) {
+                throw new IOException(path + " is truncated");
+            }
+
+            Cursor footer = new Cursor(file.map(FileChannel.MapMode.READ_ONLY, footerOffset, size - trailer - footerOffset));
+            int version = footer.buffer.getInt();
+            if (version != ColumnarExporter.VERSION) {
+                throw new IOException(path + " has unsupported format version " + version);
+            }
+            types = footer.strings();
+            users = footer.strings();
+            footer.strings(); // descriptions: none of the aggregates here need them
+            int categoryCount = (int) footer.varint();
+            for (int i = 0; i < categoryCount; i++) {
+                categories.put((int) footer.varint(), footer.string());
+            }
+            blocks = new Block[(int) footer.varint()];
+            for (int i = 0; i < blocks.length; i++) {
+                long offset = footer.buffer.getLong();
+                int rows = footer.buffer.getInt();
+                int[] lengths = new int[COLUMNS];
+                for (int c = 0; c < COLUMNS; c++) {
+                    lengths[c] = footer.buffer.getInt();
+                }
+                footer.buffer.getLong(); // min id
+                footer.buffer.getLong(); // max id
+                long minTimestamp = footer.buffer.getLong();
+                long maxTimestamp = footer.buffer.getLong();
+                footer.buffer.getLong(); // min amount
+                footer.buffer.getLong(); // max amount
+                blocks[i] = new Block(offset, rows, lengths, minTimestamp, maxTimestamp);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static byte[] magic(MappedByteBuffer buffer) {
+        byte[] magic = new byte[ColumnarExporter.MAGIC.length];
+        buffer.get(magic);
+        return magic;
+    }
+
+    public long rows() {
+        long rows = 0;
+        for (Block block : blocks) {
+            rows += block.rows();
+        }
+        return rows;
+    }
+
+    public int blocks() {
+        return blocks.length;
+    }
+
+    /** Balance per user in minor units, with the same rule as the balances table: Debit adds, Credit subtracts. */
+    public Map<String, Long> balances() throws IOException {
+        int debit = indexOf(types, "Debit");
+        int credit = indexOf(types, "Credit");
+        long[] totals = new long[users.length + 1];
+        for (Block block : blocks) {
+            Cursor type = column(block, ColumnarExporter.Column.TYPE);
+            Cursor user = column(block, ColumnarExporter.Column.USER);
+            Cursor amount = column(block, ColumnarExporter.Column.AMOUNT);
+            for (int row = 0; row < block.rows(); row++) {
+                int t = (int) type.varint();
+                int u = (int) user.varint();
+                long a = unzigzag(amount.varint());
+                if (t == debit) {
+                    totals[u] += a;
+                } else if (t == credit) {
+                    totals[u] -= a;
+                }
+            }
+        }
+        Map<String, Long> balances = new TreeMap<>();
+        for (int u = 1; u < totals.length; u++) {
+            balances.merge(users[u - 1], totals[u], Long::sum);
+        }
+        return balances;
+    }
+
+    /**
+     * Total amount in minor units per category name for postings of {@code type}, within
+     * the inclusive date range; null bounds are open.
+     */
+    public Map<String, Long> categoryTotals(String type, LocalDate from, LocalDate to) throws IOException {
+        int wanted = indexOf(types, type);
+        long lower = from == null ? Long.MIN_VALUE + 1 : from.toEpochDay() * 86_400;
+        long upper = to == null ? Long.MAX_VALUE : to.plusDays(1).toEpochDay() * 86_400 - 1;
+        boolean ranged = from != null || to != null;
+
+        Map<Integer, Long> totals = new HashMap<>();
+        for (Block block : blocks) {
+            if (wanted < 0 || (ranged && (block.maxTimestamp() < lower || block.minTimestamp() > upper))) {
+                continue;
+            }
+            // the timestamp column only needs decoding when the block straddles a bound
+            boolean whole = !ranged || (block.minTimestamp() >= lower && block.maxTimestamp() <= upper
+                    && block.minTimestamp() <= block.maxTimestamp());
+            Cursor timestamps = whole ? null : column(block, ColumnarExporter.Column.TIMESTAMP);
+            Cursor typeColumn = column(block, ColumnarExporter.Column.TYPE);
+            Cursor categoryColumn = column(block, ColumnarExporter.Column.CATEGORY);
+            Cursor amountColumn = column(block, ColumnarExporter.Column.AMOUNT);
+            long timestamp = 0;
+            for (int row = 0; row < block.rows(); row++) {
+                boolean inRange = true;
+                if (timestamps != null) {
+                    timestamp += unzigzag(timestamps.varint());
+                    inRange = timestamp != ColumnarExporter.NO_TIMESTAMP && timestamp >= lower && timestamp <= upper;
+                }
+                int t = (int) typeColumn.varint();
+                int category = (int) categoryColumn.varint();
+                long amount = unzigzag(amountColumn.varint());
+                if (inRange && t == wanted) {
+                    totals.merge(category, amount, Long::sum);
+                }
+            }
+        }
+        Map<String, Long> byName = new TreeMap<>();
+        for (Map.Entry<Integer, Long> total : totals.entrySet()) {
+            byName.merge(categories.getOrDefault(total.getKey(), "Unknown"), total.getValue(), Long::sum);
+        }
+        return byName;
+    }
+
+    private Cursor column(Block block, ColumnarExporter.Column column) throws IOException {
+        return new Cursor(file.map(FileChannel.MapMode.READ_ONLY, block.columnOffset(column),
+                block.lengths()[column.ordinal()]));
+    }
+
+    // dictionary code of value, or -1 if the file never contains it
+    private static int indexOf(String[] dictionary, String value) {
+        for (int i = 0; i < dictionary.length; i++) {
+            if (dictionary[i].equals(value)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private static final class Cursor {
+        final MappedByteBuffer buffer;
+
+        Cursor(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        long varint() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        String string() {
+            byte[] utf8 = new byte[(int) varint()];
+            buffer.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        String[] strings() {
+            String[] values = new String[(int) varint()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = string();
+            }
+            return values;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 3) {
+            System.err.println("Usage: ColumnarReader file [fromDate toDate]");
+            System.exit(2);
+        }
+        LocalDate from = args.length == 3 ? LocalDate.parse(args[1]) : null;
+        LocalDate to = args.length == 3 ? LocalDate.parse(args[2]) : null;
+        try (ColumnarReader reader = new ColumnarReader(Path.of(args[0]))) {
+            long start = System.nanoTime();
+            Map<String, Long> balances = reader.balances();
+            long balancesNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            Map<String, Long> spending = reader.categoryTotals("Debit", from, to);
+            long spendingNanos = System.nanoTime() - start;
+
+            System.out.printf(Locale.US, "%d transactions in %d blocks%n", reader.rows(), reader.blocks());
+            System.out.printf(Locale.US, "%nBalances: %d users (%.1f ms)%n", balances.size(), balancesNanos / 1e6);
+            balances.entrySet().stream().limit(10).forEach(e ->
+                    System.out.printf(Locale.US, "  %-40s %15s%n", e.getKey(), Money.format(e.getValue())));
+            if (balances.size() > 10) {
+                System.out.println("  ...");
+            }
+            System.out.printf(Locale.US, "%nSpending by category%s (%.1f ms)%n",
+                    from == null ? "" : " from " + from + " to " + to, spendingNanos / 1e6);
+            spending.forEach((category, total) ->
+                    System.out.printf(Locale.US, "  %-40s %15s%n", category, Money.format(total)));
+        }
+    }
+}
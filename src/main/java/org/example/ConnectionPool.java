@@ -0,0 +1,229 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of SQLite connections running in WAL mode.
+ *
+ * SQLite allows many concurrent readers but only one writer, so the pool keeps exactly
+ * one writer connection behind a lock and a fixed set of reader connections that are
+ * handed out through a queue. A thread that already holds the writer gets the writer
+ * back from both {@link #writer()} and {@link #reader()}, so nested calls (for example
+ * {@code saveTransaction} inside the savings sweep) join the caller's transaction
+ * instead of deadlocking or reading around it.
+ *
+ * Every connection carries its own {@link StatementCache}; use {@link Lease#prepare}
+ * rather than {@code prepareStatement} so repeated queries skip SQLite's compile step.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final int CACHE_SIZE_KIB = 16 * 1024;
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("ledger.db.statementCacheSize", 64);
+    private static final String SYNCHRONOUS = System.getProperty("ledger.db.synchronous", "NORMAL");
+
+    private final Connection writer;
+    // fair: with many (virtual) threads, a barging lock let a releasing thread win again and again
+    // and left some waiters starved for seconds
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+    private final BlockingQueue<Connection> idleReaders;
+    private final List<Connection> allReaders = new ArrayList<>();
+    private final Map<Connection, StatementCache> caches = new IdentityHashMap<>();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, int readerCount) throws SQLException {
+        if (readerCount < 1) {
+            throw new IllegalArgumentException("readerCount must be at least 1");
+        }
+
+        writer = DriverManager.getConnection(url);
+        try (Statement stmt = writer.createStatement()) {
+            // journal_mode is persistent in the database file, so setting it once is enough
+            stmt.execute("PRAGMA journal_mode = WAL");
+        }
+        configure(writer, false);
+        caches.put(writer, new StatementCache(writer, STATEMENT_CACHE_SIZE));
+
+        idleReaders = new ArrayBlockingQueue<>(readerCount, true);
+        for (int i = 0; i < readerCount; i++) {
+            Connection reader = DriverManager.getConnection(url);
+            configure(reader, true);
+            caches.put(reader, new StatementCache(reader, STATEMENT_CACHE_SIZE));
+            allReaders.add(reader);
+            idleReaders.add(reader);
+        }
+    }
+
+    private static void configure(Connection conn, boolean readOnly) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+            // NORMAL is durable across application crashes in WAL mode and skips the fsync per commit;
+            // FULL also survives power loss, which group commit makes affordable
+            stmt.execute("PRAGMA synchronous = " + SYNCHRONOUS);
+            // negative values are in KiB rather than pages
+            stmt.execute("PRAGMA cache_size = -" + CACHE_SIZE_KIB);
+            stmt.execute("PRAGMA temp_store = MEMORY");
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = 1");
+            }
+        }
+    }
+
+    /** Borrows the single writer connection, blocking until no other thread holds it. */
+    public Lease writer() throws SQLException {
+        ensureOpen();
+        try {
+            if (!writeLock.tryLock(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLException("Timed out waiting for the writer connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the writer connection", e);
+        }
+        return new Lease(writer, true);
+    }
+
+    /** Borrows a read-only connection, or the writer if the calling thread already holds it. */
+    public Lease reader() throws SQLException {
+        ensureOpen();
+        if (writeLock.isHeldByCurrentThread()) {
+            return writer();
+        }
+
+        Connection conn;
+        try {
+            conn = idleReaders.poll(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", e);
+        }
+        if (conn == null) {
+            throw new SQLException("Timed out waiting for a reader connection");
+        }
+        return new Lease(conn, false);
+    }
+
+    public boolean isWriterHeldByCurrentThread() {
+        return writeLock.isHeldByCurrentThread();
+    }
+
+    public int readerCount() {
+        return allReaders.size();
+    }
+
+    public long statementCacheHits() {
+        return caches.values().stream().mapToLong(StatementCache::hits).sum();
+    }
+
+    public long statementCacheMisses() {
+        return caches.values().stream().mapToLong(StatementCache::misses).sum();
+    }
+
+    public long statementCacheEvictions() {
+        return caches.values().stream().mapToLong(StatementCache::evictions).sum();
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        SQLException failure = null;
+        for (Connection conn : allReaders) {
+            caches.get(conn).close();
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        writeLock.lock();
+        try {
+            caches.get(writer).close();
+            writer.close();
+        } catch (SQLException e) {
+            failure = e;
+        } finally {
+            writeLock.unlock();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** A borrowed connection; closing the lease returns it to the pool rather than closing it. */
+    public final class Lease implements AutoCloseable {
+        private final Connection conn;
+        private final boolean write;
+        private boolean released;
+
+        private Lease(Connection conn, boolean write) {
+            this.conn = conn;
+            this.write = write;
+        }
+
+        public Connection connection() {
+            return conn;
+        }
+
+        /**
+         * Returns the cached statement for {@code sql}, preparing it on first use.
+         * The statement belongs to the cache and must not be closed by the caller.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            return caches.get(conn).prepare(sql);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (released) {
+                return;
+            }
+            released = true;
+
+            if (write) {
+                try {
+                    // only the outermost lease may end a transaction a caller left open
+                    if (writeLock.getHoldCount() == 1) {
+                        resetAutoCommit(conn);
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            } else {
+                try {
+                    resetAutoCommit(conn);
+                } finally {
+                    idleReaders.offer(conn);
+                }
+            }
+        }
+    }
+
+    private static void resetAutoCommit(Connection conn) throws SQLException {
+        if (!conn.isClosed() && !conn.getAutoCommit()) {
+            conn.rollback();
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a user's transactions to CSV (Date,Description,Type,Amount).
+ *
+ * Rows go straight from the result set into one large buffer that is drained to a file
+ * channel, so memory stays flat however long the history is. Fields are quoted per
+ * RFC 4180 and amounts are written digit by digit instead of through String.format.
+ * Output can optionally be gzip-compressed on the way out.
+ */
+public class CsvExporter {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final OperationMetrics EXPORT_CSV = Metrics.operation("export.csv");
+    private static final byte[] HEADER = "Date,Description,Type,Amount\n".getBytes(StandardCharsets.US_ASCII);
+
+    public record ExportResult(long rows, long bytes, long elapsedNanos) {
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    /**
+     * @param fromDate first day to include (YYYY-MM-DD), or null for no lower bound
+     * @param toDate   last day to include (YYYY-MM-DD), or null for no upper bound
+     */
+    @SuppressWarnings("try")
+    public static ExportResult export(String email, Path output, String fromDate, String toDate, boolean gzip)
+            throws SQLException, IOException {
+        long start = System.nanoTime();
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT timestamp, description, type, amount FROM transactions WHERE user_email = ?");
+        if (fromDate != null) {
+            sql.append(" AND timestamp >= ?");
+        }
+        if (toDate != null) {
+            sql.append(" AND timestamp < date(?, '+1 day')");
+        }
+        // index order, so the export is a single forward walk of idx_transactions_user_time
+        sql.append(" ORDER BY timestamp, id");
+
+        long rows = 0;
+        try (OperationMetrics.Timer timer = EXPORT_CSV.time();
+             ConnectionPool.Lease lease = DatabaseHandler.getPool().reader();
+             FileChannel file = FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             CsvSink sink = new CsvSink(gzip
+                     ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(file), 1 << 16))
+                     : file)) {
+
+            PreparedStatement ps = lease.prepare(sql.toString());
+            int index = 1;
+            ps.setString(index++, email);
+            if (fromDate != null) {
+                ps.setString(index++, fromDate);
+            }
+            if (toDate != null) {
+                ps.setString(index, toDate);
+            }
+
+            sink.write(HEADER);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sink.field(rs.getString(1));
+                    sink.write((byte) ',');
+                    sink.field(rs.getString(2));
+                    sink.write((byte) ',');
+                    sink.field(rs.getString(3));
+                    sink.write((byte) ',');
+                    sink.amount(rs.getLong(4));
+                    sink.write((byte) '\n');
+                    rows++;
+                }
+            }
+            // with gzip the sink only sees uncompressed bytes, so the size comes from the file once
+            // the sink is closed and the trailer written; closing the sink closes the file too
+            sink.close();
+            return new ExportResult(rows, Files.size(output), System.nanoTime() - start);
+        } catch (SQLException | IOException e) {
+            EXPORT_CSV.error(e);
+            throw e;
+        }
+    }
+
+    public static void report(ExportResult result, Path output) {
+        double seconds = result.elapsedNanos() / 1e9;
+        System.out.printf(Locale.US, "\nSuccessfully exported %d transactions to %s (%.1f MB in %.2f s, %.0f rows/sec)\n",
+                result.rows(), output, result.bytes() / 1e6, seconds, result.rowsPerSecond());
+    }
+
+    /** Buffered writer over a byte channel with CSV-specific encoders. */
+    static final class CsvSink implements AutoCloseable {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        CsvSink(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(byte b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put(b);
+        }
+
+        void write(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        /** Writes a field, quoting it only when it contains a comma, quote or line break. */
+        void field(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+
+            boolean ascii = true;
+            boolean needsQuotes = false;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                } else if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    needsQuotes = true;
+                }
+            }
+
+            if (needsQuotes) {
+                write((byte) '"');
+            }
+            if (ascii) {
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') {
+                        write((byte) '"');
+                    }
+                    write((byte) c);
+                }
+            } else {
+                write((needsQuotes ? value.replace("\"", "\"\"") : value).getBytes(StandardCharsets.UTF_8));
+            }
+            if (needsQuotes) {
+                write((byte) '"');
+            }
+        }
+
+        /** Writes an amount held in minor units with exactly two decimals. */
+        void amount(long cents) throws IOException {
+            if (cents < 0) {
+                write((byte) '-');
+                cents = -cents;
+            }
+            digits(cents / 100);
+            write((byte) '.');
+            long fraction = cents % 100;
+            write((byte) ('0' + fraction / 10));
+            write((byte) ('0' + fraction % 10));
+        }
+
+        private void digits(long value) throws IOException {
+            if (value >= 10) {
+                digits(value / 10);
+            }
+            write((byte) ('0' + value % 10));
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+            // closing the gzip channel writes the trailer; closing a channel twice is harmless,
+            // so export can close the sink itself before try-with-resources does
+            channel.close();
+        }
+    }
+}
@@ -1,32 +1,78 @@
 package org.example;
 
-import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.Locale;
 import java.util.Scanner;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
-import org.mindrot.jbcrypt.BCrypt;
 
 public class DatabaseHandler {
-    private static final String DB_URL = "jdbc:sqlite:ledger.db";
-    static Connection conn;
-    private ScheduledExecutorService scheduler;
-
-    // initialize database table and connection
+    private static final String DB_URL = System.getProperty("ledger.db.url", "jdbc:sqlite:ledger.db");
+    private static final int READER_CONNECTIONS = Integer.getInteger("ledger.db.readers",
+            Runtime.getRuntime().availableProcessors());
+    private static final boolean GROUP_COMMIT = Boolean.getBoolean("ledger.groupCommit.enabled");
+    private static final int GROUP_COMMIT_MAX_BATCH = Integer.getInteger("ledger.groupCommit.maxBatch", 256);
+    private static final long GROUP_COMMIT_LINGER_MS = Long.getLong("ledger.groupCommit.lingerMs", 2);
+    private static final int JOB_THREADS = Integer.getInteger("ledger.jobs.threads", 2);
+    private static final LocalTime SAVINGS_SWEEP_AT =
+            LocalTime.parse(System.getProperty("ledger.jobs.savingsSweepAt", "23:00"));
+    private static final LocalTime LOAN_REMINDERS_AT =
+            LocalTime.parse(System.getProperty("ledger.jobs.loanRemindersAt", "00:05"));
+    // opened by Main through openJournal, before anything else writes
+    static final String JOURNAL_PATH = System.getProperty("ledger.journal.path");
+
+    // the timestamp is bound only when journaling, so that a replay stamps postings as they were first written
+    static final String INSERT_TRANSACTION_SQL = "INSERT INTO transactions(type, amount, description, user_email, " +
+            "category_id, timestamp) VALUES(?,?,?,?,?,COALESCE(?, CURRENT_TIMESTAMP))";
+
+    static ConnectionPool pool;
+    static GroupCommitWriter groupCommit;
+    // null until openJournal
+    static PostingJournal journal;
+    private static final PostingStats directStats = new PostingStats("direct");
+
+    // stable operation names; see Metrics for the JMX and text-dump views
+    private static final OperationMetrics TXN_INSERT = Metrics.operation("txn.insert");
+    private static final OperationMetrics USER_EXISTS = Metrics.operation("user.exists");
+    private static final OperationMetrics USER_INSERT = Metrics.operation("user.insert");
+    private static final OperationMetrics LOAN_REMINDERS = Metrics.operation("loan.reminders");
+    private static final OperationMetrics SAVINGS_SWEEP = Metrics.operation("savings.sweep");
+    private static final OperationMetrics SAVINGS_ACTIVATE = Metrics.operation("savings.activate");
+    private static final OperationMetrics SAVINGS_ACCRUE = Metrics.operation("savings.accrue");
+    private static final OperationMetrics SAVINGS_READ = Metrics.operation("savings.read");
+    private static final OperationMetrics USER_ID = Metrics.operation("user.id");
+    private static final OperationMetrics LOAN_APPLY = Metrics.operation("loan.apply");
+    private static final OperationMetrics LOAN_REPAY = Metrics.operation("loan.repay");
+    private static final OperationMetrics LOAN_BALANCE = Metrics.operation("loan.balance");
+    private static final OperationMetrics BALANCE_READ = Metrics.operation("balance.read");
+    private static final OperationMetrics BI_VIEWS = Metrics.operation("bi.views");
+    private static final OperationMetrics BI_ROLLUPS_REBUILD = Metrics.operation("bi.rollups.rebuild");
+    private static final OperationMetrics TXN_RECATEGORIZE = Metrics.operation("txn.recategorize");
+    private JobScheduler scheduler;
+
+    // initialize database table and connection pool
     static {
         try {
-            conn = getConnection();
+            pool = new ConnectionPool(DB_URL, READER_CONNECTIONS);
             createTables();
+            DelinquencyTracker.load(pool);
+            Categorizer.load(pool);
+            if (GROUP_COMMIT) {
+                groupCommit = new GroupCommitWriter(pool, GROUP_COMMIT_MAX_BATCH, GROUP_COMMIT_LINGER_MS);
+            }
+            Metrics.startReporter();
 
             System.out.println("Connected to SQLite database successfully.");
         } catch (SQLException e) {
@@ -34,375 +80,478 @@ public class DatabaseHandler {
         }
     }
 
-    public static Connection getConnection() throws SQLException {
-        if (conn == null || conn.isClosed()) {
-            conn = DriverManager.getConnection(DB_URL);
+    public static ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Opens the replay log and re-executes whatever the tables do not reflect yet. Call it
+     * before any other write; if it throws, the tables are behind the log and nothing
+     * should be written until that is resolved.
+     */
+    public static void openJournal(Path path) throws IOException, SQLException {
+        PostingJournal opened = PostingJournal.open(path);
+        journal = opened;
+        try {
+            opened.replay(pool, DatabaseHandler::replay);
+        } catch (IOException | SQLException e) {
+            journal = null;
+            try {
+                opened.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+    }
+
+    // re-executes an operation the tables do not reflect yet; it journals an equal entry, see PostingJournal
+    private static void replay(PostingJournal.Entry entry) throws SQLException {
+        DatabaseHandler handler = new DatabaseHandler();
+        switch (entry) {
+            case PostingJournal.Postings postings -> replayPostings(postings);
+            case PostingJournal.Repayment repayment -> handler.repayLoan(repayment.email());
+            case PostingJournal.LoanOpened loan -> handler.applyLoan(loan.email(), loan.principal(),
+                    loan.interestRate(), loan.period(), Amortization.Method.valueOf(loan.method()),
+                    LocalDate.parse(loan.start()));
+            case PostingJournal.UserRegistered user -> handler.storeUser(user.name(), user.email(), user.passwordHash());
+            case PostingJournal.SavingsActivated savings -> handler.activateSavings(savings.email(), savings.percentage());
+            case PostingJournal.SavingsAccrued savings ->
+                    handler.processSavingsOnDebit(savings.email(), savings.debitAmount());
+            case PostingJournal.SweepChunk chunk -> SavingsSweepJob.replay(pool, chunk);
+            case PostingJournal.Imported imported -> TransactionImporter.replay(pool, imported);
         }
-        return conn;
     }
 
-    public static void createTables() throws SQLException {
-        String sql = "CREATE TABLE IF NOT EXISTS users (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "name TEXT NOT NULL, " +
-                "email TEXT NOT NULL UNIQUE, " +
-                "password TEXT NOT NULL)";
-
-
-        try (Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate(sql);
-
-            // transaction table
-            stmt.executeUpdate("""
-                CREATE TABLE IF NOT EXISTS transactions (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    type TEXT NOT NULL,
-                    amount REAL NOT NULL,
-                    description TEXT NOT NULL,
-                    user_email TEXT NOT NULL,
-                    timestamp DATETIME DEFAULT CURRENT_TIMESTAMP,
-                    FOREIGN KEY (user_email) REFERENCES users(email)
-                );
-                """);
-
-            // loans table
-            stmt.executeUpdate("""
-                CREATE TABLE IF NOT EXISTS loans (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    user_email TEXT NOT NULL,
-                    principal_amount REAL NOT NULL,
-                    interest_rate REAL NOT NULL,
-                    repayment_period INTEGER NOT NULL,
-                    outstanding_balance REAL NOT NULL,
-                    monthly_repayment REAL,
-                    status TEXT NOT NULL,
-                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                    next_payment_date DATE,
-                    FOREIGN KEY (user_email) REFERENCES users(email)
-                );
-                """);
-
-            // savings table
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS savings (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "user_email TEXT NOT NULL UNIQUE, " +
-                    "percentage INTEGER NOT NULL, " +
-                    "saved_amount REAL DEFAULT 0, " +
-                    "FOREIGN KEY (user_email) REFERENCES users(email))");
+    @FunctionalInterface
+    private interface Write {
+        /** Returns false if it changed nothing, so there is nothing to journal. */
+        boolean run() throws SQLException;
+    }
+
+    // runs a single-lease write in one transaction with its journal entry; as in saveTransaction,
+    // inside a caller's transaction the caller journals
+    private static boolean journaled(ConnectionPool.Lease lease, Function<String, PostingJournal.Entry> entry,
+                                     Write write) throws SQLException {
+        Connection conn = lease.connection();
+        if (journal == null || !conn.getAutoCommit()) {
+            return write.run();
+        }
+        String timestamp = journal.timestamp();
+        PostingJournal.Appended appended = null;
+        conn.setAutoCommit(false);
+        try {
+            if (!write.run()) {
+                conn.rollback();
+                return false;
+            }
+            appended = journal.append(lease, entry.apply(timestamp));
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            conn.rollback();
+            journal.discard(appended);
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // a group commit's postings go back in as one transaction, like the original
+    private static void replayPostings(PostingJournal.Postings postings) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement ps = lease.prepare(INSERT_TRANSACTION_SQL);
+                for (PostingJournal.Posting posting : postings.postings()) {
+                    ps.setString(1, posting.type());
+                    ps.setLong(2, posting.amount());
+                    ps.setString(3, posting.description());
+                    ps.setString(4, posting.email());
+                    ps.setInt(5, Categorizer.categorize(posting.description()));
+                    ps.setString(6, postings.timestamp());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                journal.append(lease, postings);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
 
+    // brings the schema up to date; a no-op when PRAGMA user_version is already current
+    public static void createTables() throws SQLException {
+        try {
+            SchemaMigrator.migrate(pool);
         } catch (SQLException e) {
             System.out.println("Error creating tables: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    @SuppressWarnings("try")
     public boolean userExists(String email) {
         String sql = "SELECT email FROM users WHERE email = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+        try (OperationMetrics.Timer timer = USER_EXISTS.time();
+             ConnectionPool.Lease lease = pool.reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
 
             pstmt.setString(1, email);
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
         } catch (SQLException e) {
+            USER_EXISTS.error(e);
             System.out.println("Error checking user: " + e.getMessage());
             return false;
         }
     }
 
-    public void insertUser(String name, String email, String password) {
-        String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt()); // Hashing password
-        String sql = "INSERT INTO users(name, email, password) VALUES(?,?,?)";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+    /** Returns false if the user could not be stored, e.g. because the email is already registered. */
+    public boolean insertUser(String name, String email, String password) {
+        // hashed on Authenticator's bounded executor at the configured bcrypt cost
+        String hashedPassword = Authenticator.hash(password).join();
+        if (hashedPassword == null) {
+            System.out.println("Too many sign-ups at once, please try again.");
+            return false;
+        }
+        return storeUser(name, email, hashedPassword);
+    }
 
-            pstmt.setString(1, name);
-            pstmt.setString(2, email);
-            pstmt.setString(3, hashedPassword);
-            pstmt.executeUpdate();
+    // journal replay comes in here with the recorded hash
+    @SuppressWarnings("try")
+    private boolean storeUser(String name, String email, String hashedPassword) {
+        String sql = "INSERT INTO users(name, email, password) VALUES(?,?,?)";
+        try (OperationMetrics.Timer timer = USER_INSERT.time();
+             ConnectionPool.Lease lease = pool.writer()) {
+            journaled(lease,
+                    timestamp -> new PostingJournal.UserRegistered(timestamp, name, email, hashedPassword), () -> {
+                PreparedStatement pstmt = lease.prepare(sql);
+                pstmt.setString(1, name);
+                pstmt.setString(2, email);
+                pstmt.setString(3, hashedPassword);
+                pstmt.executeUpdate();
+                return true;
+            });
             System.out.println("User inserted successfully.");
+            return true;
         } catch (SQLException e) {
+            USER_INSERT.error(e);
             System.out.println("Error inserting user: " + e.getMessage());
+            return false;
         }
     }
 
     public boolean validateUser(String email, String password) {
-        String sql = "SELECT password FROM users WHERE email = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
-
-            pstmt.setString(1, email);
-            ResultSet rs = pstmt.executeQuery();
+        return login(email, password) == Authenticator.Outcome.OK;
+    }
 
-            if (rs.next()) {
-                String storedHash = rs.getString("password");
-                return BCrypt.checkpw(password, storedHash); // Check bcrypt hash
-            }
-        } catch (SQLException e) {
-            System.out.println("Error validating user: " + e.getMessage());
+    /** One lookup and one bcrypt check on Authenticator's executor; waits for the outcome. */
+    public Authenticator.Outcome login(String email, String password) {
+        try {
+            return Authenticator.authenticate(pool, email, password).join();
+        } catch (CompletionException e) {
+            System.out.println("Error validating user: " + e.getCause().getMessage());
+            return Authenticator.Outcome.WRONG_PASSWORD;
         }
-        return false;
     }
 
+    // prints the most recent page; Main pages through the rest with TransactionHistory
     public static void showHistory(String email) {
         System.out.println("\n== Transaction History ==");
 
-        String sql = "SELECT * FROM transactions WHERE user_email = ? ORDER BY timestamp DESC";
-
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
-            stmt.setString(1, email);
-            ResultSet rs = stmt.executeQuery();
-
-            System.out.println("ID | Type   | Amount       | Description          | Date");
-            System.out.println("-------------------------------------------------------------");
-
-            while (rs.next()) {
-                System.out.printf(Locale.US, "%-2d | %-6s | %12.2f | %-20s | %s\n",
-                        rs.getInt("id"),
-                        rs.getString("type"),
-                        rs.getDouble("amount"),
-                        rs.getString("description"),
-                        rs.getString("timestamp"));
-            }
+        try {
+            TransactionHistory.Page page = TransactionHistory.firstPage(email, TransactionHistory.Filter.none(),
+                    TransactionHistory.DEFAULT_PAGE_SIZE);
+            System.out.print(TransactionHistory.render(page));
         } catch (SQLException e) {
             System.err.println("Error retrieving transaction history:");
             e.printStackTrace();
         }
     }
 
+    /** Returns false if the posting could not be saved; the error has already been reported. */
+    public static boolean saveTransaction(String type, long amount, String description, String email) {
+        // inside a caller's transaction the posting must join it rather than wait for a later group
+        if (groupCommit != null && !pool.isWriterHeldByCurrentThread()) {
+            try {
+                groupCommit.submit(type, amount, description, email).join();
+                return true;
+            } catch (Exception e) {
+                System.err.println("Error saving transaction:");
+                e.printStackTrace();
+                return false;
+            }
+        }
 
-    public static void saveTransaction(String type, double amount, String description, String email) {
-        String sql = "INSERT INTO transactions(type, amount, description, user_email) VALUES(?,?,?,?)";
-
-        try (PreparedStatement ps = getConnection().prepareStatement(sql)) {
-            ps.setString(1, type);
-            ps.setDouble(2, amount);
-            ps.setString(3, description);
-            ps.setString(4, email);
-            ps.executeUpdate();
+        long start = System.nanoTime();
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            Connection conn = lease.connection();
+            // a posting of its own is journaled with it; inside a caller's transaction the caller journals
+            boolean journaled = journal != null && conn.getAutoCommit();
+            String timestamp = journal == null ? null : journal.timestamp();
+            PostingJournal.Appended appended = null;
+            if (journaled) {
+                conn.setAutoCommit(false);
+            }
+            try {
+                PreparedStatement ps = lease.prepare(INSERT_TRANSACTION_SQL);
+                ps.setString(1, type);
+                ps.setLong(2, amount);
+                ps.setString(3, description);
+                ps.setString(4, email);
+                ps.setInt(5, Categorizer.categorize(description));
+                ps.setString(6, timestamp);
+                ps.executeUpdate();
+                if (journaled) {
+                    appended = journal.append(lease, new PostingJournal.Postings(timestamp,
+                            List.of(new PostingJournal.Posting(type, amount, description, email))));
+                    conn.commit();
+                }
+            } catch (SQLException e) {
+                if (journaled) {
+                    conn.rollback();
+                    journal.discard(appended);
+                }
+                throw e;
+            } finally {
+                if (journaled) {
+                    conn.setAutoCommit(true);
+                }
+            }
+            // inside a caller's transaction the caller refreshes the cache after its commit
+            if (lease.connection().getAutoCommit()) {
+                directStats.recordCommit();
+                AccountSnapshotCache.posted(email, type, amount);
+            }
         } catch (SQLException e) {
+            TXN_INSERT.error(e);
             System.err.println("Error saving transaction:");
             e.printStackTrace();
+            return false;
+        }
+        long latency = System.nanoTime() - start;
+        directStats.recordPosting(latency);
+        TXN_INSERT.record(latency);
+        return true;
+    }
+
+    /**
+     * Posts a transaction without waiting for it. With group commit enabled
+     * (ledger.groupCommit.enabled) the future completes when the shared commit that
+     * includes it returns; otherwise the posting is committed before this returns.
+     */
+    public static CompletableFuture<Void> submitTransaction(String type, long amount, String description, String email) {
+        if (groupCommit != null && !pool.isWriterHeldByCurrentThread()) {
+            return groupCommit.submit(type, amount, description, email);
         }
+        saveTransaction(type, amount, description, email);
+        return CompletableFuture.completedFuture(null);
     }
 
+    public static String postingStatsSummary() {
+        String summary = directStats.summary();
+        if (groupCommit != null) {
+            summary += "\n" + groupCommit.stats().summary();
+        }
+        return summary;
+    }
+
+    @SuppressWarnings("try")
     public static void checkLoanReminders(String email) {
-        String query = "SELECT created_at, repayment_period, outstanding_balance FROM loans WHERE user_email = ? AND status = 'active'";
+        // queued by LoanReminderJob; paid installments have already been cleared
+        String query = "SELECT due_date, amount_due FROM loan_reminders WHERE user_email = ? ORDER BY due_date";
 
-        try (PreparedStatement ps = getConnection().prepareStatement(query)) {
-            ps.setString(1, email);
-            ResultSet rs = ps.executeQuery();
+        try (OperationMetrics.Timer timer = LOAN_REMINDERS.time();
+             ConnectionPool.Lease lease = pool.reader();
+             ResultSet rs = executeQuery(lease.prepare(query), email)) {
 
-            java.time.LocalDate today = java.time.LocalDate.now();
             boolean hasReminder = false;
-
             while (rs.next()) {
-                java.sql.Timestamp timestamp = rs.getTimestamp("created_at");
-                java.time.LocalDate createdDate = timestamp.toLocalDateTime().toLocalDate();
-
-                int months = rs.getInt("repayment_period");
-                java.time.LocalDate dueDate = createdDate.plusMonths(months);
-
-                if (!dueDate.isBefore(today)) { // show upcoming loan
-                    double balance = rs.getDouble("outstanding_balance");
-                    System.out.printf(Locale.US, "Reminder: %.2f loan is due on %s\n", balance, dueDate);
-                    hasReminder = true;
-                }
+                System.out.println("Reminder: " + Money.format(rs.getLong("amount_due"))
+                        + " loan installment is due on " + rs.getString("due_date"));
+                hasReminder = true;
             }
 
             if (!hasReminder) {
-                System.out.println("No loan repayments due within the next 7 days.");
+                System.out.println("No loan repayments due within the next " + LoanReminderJob.HORIZON_DAYS + " days.");
             }
 
         } catch (Exception e) {
+            LOAN_REMINDERS.error(e);
             System.out.println("Error checking loan reminders: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    static void exportToCSV (String email) {
-        String outputFile = "transaction_history.csv";
-
-        String sql = "SELECT timestamp, description, type, amount FROM transactions WHERE user_email = ?";
-
-        try (PreparedStatement ps = getConnection().prepareStatement(sql)) {
+    private static ResultSet executeQuery(PreparedStatement ps, String email) throws SQLException {
+        ps.setString(1, email);
+        return ps.executeQuery();
+    }
 
-            ps.setString(1, email);
-            ResultSet rs = ps.executeQuery();
-
-            try (FileWriter fw = new FileWriter(outputFile)) {
-                // Write CSV headers
-                fw.write("Date,Description,Type,Amount\n");
-
-                while (rs.next()) {
-                    String row = String.format(Locale.US, "%s,%s,%s,%.2f\n",
-                            rs.getString("timestamp"),
-                            rs.getString("description").replace(",", ";"),  // Handle commas in description
-                            rs.getString("type"),
-                            rs.getDouble("amount"));
-                    fw.write(row);
-                }
+    static void exportToCSV (String email) {
+        exportToCSV(email, Path.of("transaction_history.csv"), null, null, false);
+    }
 
-                System.out.println("\nSuccessfully exported transactions to " + outputFile);
-            }
+    static void exportToCSV(String email, Path outputFile, String fromDate, String toDate, boolean gzip) {
+        try {
+            CsvExporter.ExportResult result = CsvExporter.export(email, outputFile, fromDate, toDate, gzip);
+            CsvExporter.report(result, outputFile);
         } catch (Exception e) {
             System.out.println("Error exporting to CSV: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    // ====== Savings Auto-Deduction ======
-    public void startMonthlySavingsScheduler() {
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        
-        // Calculate initial delay until next month's last day
-        long initialDelay = calculateDaysUntilMonthEnd();
-        
-        // Schedule daily checks with initial delay
-        scheduler.scheduleAtFixedRate(() -> {
-            if (isLastDayOfMonth()) {
-                transferSavingsToBalance();
-            }
-        }, initialDelay, 1, TimeUnit.DAYS);
-    }
-
-    private boolean isLastDayOfMonth() {
-        LocalDate today = LocalDate.now();
-        return today.getDayOfMonth() == today.lengthOfMonth();
+    // ====== Scheduled Jobs ======
+    public void startScheduler() {
+        scheduler = new JobScheduler(pool, JOB_THREADS);
+        scheduler.register(new JobScheduler.Job("savings.sweep",
+                JobScheduler.Schedule.monthEnd(SAVINGS_SWEEP_AT),
+                period -> transferSavingsToBalance(YearMonth.parse(period))));
+        scheduler.register(new JobScheduler.Job("loan.reminders",
+                JobScheduler.Schedule.daily(LOAN_REMINDERS_AT),
+                period -> LoanReminderJob.run(pool, LocalDate.parse(period))));
+        scheduler.register(new JobScheduler.Job("loan.delinquency",
+                JobScheduler.Schedule.daily(LOAN_REMINDERS_AT),
+                period -> DelinquencyTracker.refreshAll(pool, LocalDate.parse(period))));
+        scheduler.start();
     }
 
-    private long calculateDaysUntilMonthEnd() {
-        LocalDate today = LocalDate.now();
-        LocalDate lastDay = today.withDayOfMonth(today.lengthOfMonth());
-        return ChronoUnit.DAYS.between(today, lastDay);
+    // ====== Savings Auto-Deduction ======
+    void transferSavingsToBalance() {
+        try {
+            transferSavingsToBalance(YearMonth.now());
+        } catch (SQLException e) {
+            System.err.println("Error during savings transfer: " + e.getMessage());
+        }
     }
 
-    private void transferSavingsToBalance() {
-        String sql = "SELECT user_email, saved_amount FROM savings WHERE saved_amount > 0";
-        
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            conn.setAutoCommit(false);
-            
-            while (rs.next()) {
-                String userEmail = rs.getString("user_email");
-                double amount = rs.getDouble("saved_amount");
-                
-                // Transfer to balance
-                saveTransaction("Credit", amount, "Monthly savings transfer", userEmail);
-                
-                // Reset savings
-                try (PreparedStatement ps = conn.prepareStatement(
-                        "UPDATE savings SET saved_amount = 0 WHERE user_email = ?")) {
-                    ps.setString(1, userEmail);
-                    ps.executeUpdate();
-                }
-
-                System.out.println("Transferred " + amount + " from savings to balance");
-            }
-            conn.commit();
+    @SuppressWarnings("try")
+    void transferSavingsToBalance(YearMonth month) throws SQLException {
+        try (OperationMetrics.Timer timer = SAVINGS_SWEEP.time()) {
+            SavingsSweepJob.report(SavingsSweepJob.run(pool, month));
         } catch (SQLException e) {
-            System.err.println("Error during savings transfer: " + e.getMessage());
-            try {
-                conn.rollback();
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            SAVINGS_SWEEP.error(e);
+            throw e;
         }
     }
 
     public void shutdownScheduler() {
         if (scheduler != null) {
-            scheduler.shutdown();
-            try {
-                if (!scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+            scheduler.close();
+            scheduler = null;
         }
     }
 
     // ====== Savings Activation ======
+    @SuppressWarnings("try")
     public void activateSavings(String userEmail, int percentage) {
         // First check if savings exists for user
         String checkSql = "SELECT 1 FROM savings WHERE user_email = ?";
         String insertSql = "INSERT INTO savings (user_email, percentage) VALUES (?, ?)";
         String updateSql = "UPDATE savings SET percentage = ? WHERE user_email = ?";
         
-        try {
-            // Check if record exists
-            boolean exists = false;
-            try (PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
+        try (OperationMetrics.Timer timer = SAVINGS_ACTIVATE.time();
+             ConnectionPool.Lease lease = pool.writer()) {
+            journaled(lease, timestamp -> new PostingJournal.SavingsActivated(timestamp, userEmail, percentage), () -> {
+                // Check if record exists
+                boolean exists = false;
+                PreparedStatement checkStmt = lease.prepare(checkSql);
                 checkStmt.setString(1, userEmail);
                 try (ResultSet rs = checkStmt.executeQuery()) {
                     exists = rs.next();
                 }
-            }
-            
-            // Insert or update accordingly
-            if (exists) {
-                try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+
+                // Insert or update accordingly
+                if (exists) {
+                    PreparedStatement updateStmt = lease.prepare(updateSql);
                     updateStmt.setInt(1, percentage);
                     updateStmt.setString(2, userEmail);
                     updateStmt.executeUpdate();
-                }
-            } else {
-                try (PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
+                } else {
+                    PreparedStatement insertStmt = lease.prepare(insertSql);
                     insertStmt.setString(1, userEmail);
                     insertStmt.setInt(2, percentage);
                     insertStmt.executeUpdate();
                 }
-            }
+                return true;
+            });
         } catch (SQLException e) {
+            SAVINGS_ACTIVATE.error(e);
             System.err.println("Error activating savings: " + e.getMessage());
         }
     }
 
-    public void processSavingsOnDebit(String userEmail, double debitAmount) {
+    @SuppressWarnings("try")
+    public void processSavingsOnDebit(String userEmail, long debitAmount) {
         String sql = "SELECT percentage FROM savings WHERE user_email = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, userEmail);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                int percentage = rs.getInt("percentage");
-                double savingsAmount = debitAmount * (percentage / 100.0);
-                
-                // Add to savings
-                try (PreparedStatement updateStmt = conn.prepareStatement(
-                        "UPDATE savings SET saved_amount = saved_amount + ? WHERE user_email = ?")) {
-                    updateStmt.setDouble(1, savingsAmount);
-                    updateStmt.setString(2, userEmail);
-                    updateStmt.executeUpdate();
+        try (OperationMetrics.Timer timer = SAVINGS_ACCRUE.time();
+             ConnectionPool.Lease lease = pool.writer()) {
+            long[] savingsAmount = new long[1];
+            boolean saved = journaled(lease,
+                    timestamp -> new PostingJournal.SavingsAccrued(timestamp, userEmail, debitAmount), () -> {
+                PreparedStatement pstmt = lease.prepare(sql);
+                pstmt.setString(1, userEmail);
+
+                int percentage;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    percentage = rs.getInt("percentage");
                 }
+                // whole cents, rounded half up
+                savingsAmount[0] = (debitAmount * percentage + 50) / 100;
+
+                // Add to savings
+                PreparedStatement updateStmt = lease.prepare(
+                        "UPDATE savings SET saved_amount = saved_amount + ? WHERE user_email = ?");
+                updateStmt.setLong(1, savingsAmount[0]);
+                updateStmt.setString(2, userEmail);
+                updateStmt.executeUpdate();
+                return true;
+            });
+            if (saved) {
+                AccountSnapshotCache.saved(userEmail, savingsAmount[0]);
             }
         } catch (SQLException e) {
+            SAVINGS_ACCRUE.error(e);
             System.err.println("Error processing savings: " + e.getMessage());
         }
     }
 
-    public double getSavings(String userEmail) {
+    @SuppressWarnings("try")
+    public long getSavings(String userEmail) {
         String sql = "SELECT saved_amount FROM savings WHERE user_email = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
-            pstmt.setString(1, userEmail);
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next() ? rs.getDouble("saved_amount") : 0.0;
+        try (OperationMetrics.Timer timer = SAVINGS_READ.time();
+             ConnectionPool.Lease lease = pool.reader();
+             ResultSet rs = executeQuery(lease.prepare(sql), userEmail)) {
+            return rs.next() ? rs.getLong("saved_amount") : 0;
         } catch (SQLException e) {
+            SAVINGS_READ.error(e);
             System.err.println("Error getting savings: " + e.getMessage());
-            return 0.0;
+            return 0;
         }
     }
 
     // ====== LOAN FUNCTIONALITY ======
 
+    @SuppressWarnings("try")
     public int getUserId(String email) {
         String sql = "SELECT id FROM users WHERE email = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
-            pstmt.setString(1, email);
-            ResultSet rs = pstmt.executeQuery();
+        try (OperationMetrics.Timer timer = USER_ID.time();
+             ConnectionPool.Lease lease = pool.reader();
+             ResultSet rs = executeQuery(lease.prepare(sql), email)) {
             return rs.next() ? rs.getInt("id") : -1;
         } catch (SQLException e) {
+            USER_ID.error(e);
             e.printStackTrace();
             return -1;
         }
@@ -410,82 +559,187 @@ public class DatabaseHandler {
 
     public void applyLoan(Scanner scanner, String email) {
         System.out.print("Enter principal amount: ");
-        double principal = scanner.nextDouble();
+        long principal = Money.parse(scanner.next());
 
         System.out.print("Enter interest rate (e.g. 5 for 5%): ");
         double interestRate = scanner.nextDouble() / 100;
 
         System.out.print("Enter repayment period in months: ");
         int period = scanner.nextInt();
+        // Amortization rejects these with an exception, which would end the session
+        if (principal <= 0 || period <= 0 || interestRate < 0) {
+            System.out.println("Loan needs a positive principal and term.");
+            return;
+        }
 
-        double totalRepayment = principal * (1 + interestRate);
-        double monthlyRepayment = totalRepayment / period;
+        // show both repayment methods side by side before the user picks one
+        Amortization.BatchResult offers = Amortization.whatIf(new Amortization.Scenario[]{
+                Amortization.Scenario.of(Amortization.Method.FLAT, Money.toMajor(principal), interestRate, period),
+                Amortization.Scenario.of(Amortization.Method.REDUCING, Money.toMajor(principal), interestRate, period)});
+        System.out.printf(Locale.US, "1. Flat rate:         %.2f per month, %.2f in total%n",
+                offers.firstPayment()[0], offers.totalPaid()[0]);
+        System.out.printf(Locale.US, "2. Reducing balance:  %.2f per month, %.2f in total (rate taken as annual)%n",
+                offers.firstPayment()[1], offers.totalPaid()[1]);
+        System.out.print("Choose repayment method: ");
+        Amortization.Method method = scanner.nextInt() == 2 ? Amortization.Method.REDUCING : Amortization.Method.FLAT;
+
+        applyLoan(email, principal, interestRate, period, method);
+    }
 
-        String sql = "INSERT INTO loans (user_email, principal_amount, interest_rate, repayment_period, " +
-                "outstanding_balance, monthly_repayment, status) " +
-                "VALUES (?, ?, ?, ?, ?, ?, 'active')";
+    /** Records a loan, its installment schedule and the disbursement; returns the loan id, or -1 on failure. */
+    public long applyLoan(String email, long principal, double interestRate, int period, Amortization.Method method) {
+        return applyLoan(email, principal, interestRate, period, method, LocalDate.now());
+    }
 
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
-            pstmt.setString(1, email);
-            pstmt.setDouble(2, principal);
-            pstmt.setDouble(3, interestRate);
-            pstmt.setInt(4, period);
-            pstmt.setDouble(5, totalRepayment);
-            pstmt.setDouble(6, monthlyRepayment);
-            pstmt.executeUpdate();
-            saveTransaction("Debit", principal, "Loan disbursement", email);
-            System.out.println("Loan applied successfully. Total repayment: " + totalRepayment);
+    // start is the loan's first day; a journal replay passes the original one
+    @SuppressWarnings("try")
+    private long applyLoan(String email, long principal, double interestRate, int period, Amortization.Method method,
+                           LocalDate start) {
+        Amortization.Schedule schedule = Amortization.compute(
+                Amortization.Scenario.of(method, Money.toMajor(principal), interestRate, period));
+        long totalRepayment = LoanSchedule.totalDue(schedule);
+        long firstInstallment = Money.ofMajor(schedule.payment(0));
+
+        String sql = "INSERT INTO loans (user_email, principal_amount, interest_rate, repayment_period, " +
+                "outstanding_balance, monthly_repayment, status, next_payment_date, repayment_method) " +
+                "VALUES (?, ?, ?, ?, ?, ?, 'active', ?, ?) RETURNING id";
+
+        // loan, schedule and disbursement commit together
+        try (OperationMetrics.Timer timer = LOAN_APPLY.time();
+             ConnectionPool.Lease lease = pool.writer()) {
+            Connection conn = lease.connection();
+            long loanId;
+            PostingJournal.Appended appended = null;
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = lease.prepare(sql);
+                pstmt.setString(1, email);
+                pstmt.setLong(2, principal);
+                pstmt.setDouble(3, interestRate);
+                pstmt.setInt(4, period);
+                pstmt.setLong(5, totalRepayment);
+                pstmt.setLong(6, firstInstallment);
+                pstmt.setString(7, start.plusMonths(1).toString());
+                pstmt.setString(8, method.name());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    loanId = rs.getLong(1);
+                }
+                LoanSchedule.insert(conn, loanId, start, schedule, 0);
+                // joins this transaction; saveTransaction reports its own error, the rollback is ours
+                if (!saveTransaction("Debit", principal, "Loan disbursement", email)) {
+                    throw new SQLException("The loan disbursement could not be posted.");
+                }
+                if (journal != null) {
+                    appended = journal.append(lease, new PostingJournal.LoanOpened(journal.timestamp(), email,
+                            principal, interestRate, period, method.name(), start.toString()));
+                }
+                conn.commit();
+                AccountSnapshotCache.invalidate(email);
+            } catch (SQLException e) {
+                conn.rollback();
+                if (journal != null) {
+                    journal.discard(appended);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            System.out.println("Loan applied successfully. Total repayment: " + Money.format(totalRepayment));
+            System.out.println("First installment of " + Money.format(firstInstallment) + " is due on " + start.plusMonths(1));
+            return loanId;
         } catch (SQLException e) {
+            LOAN_APPLY.error(e);
             e.printStackTrace();
+            return -1;
         }
     }
 
     public void repayLoan(Scanner scanner, String email) {
-        String sql = "SELECT * FROM loans WHERE user_email = ? AND status = 'active' AND outstanding_balance > 0 AND monthly_repayment IS NOT NULL ORDER BY created_at DESC LIMIT 1";
+        repayLoan(email);
+    }
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+    /**
+     * Pays the next installment of the user's most recent active loan. Returns the amount
+     * repaid in minor units, 0 if there is no active loan, or -1 if the repayment failed.
+     */
+    @SuppressWarnings("try")
+    public long repayLoan(String email) {
+        // only columns in idx_loans_user_status, so the lookup never touches the loans table
+        String sql = "SELECT id, outstanding_balance, monthly_repayment FROM loans WHERE user_email = ? AND status = 'active' AND outstanding_balance > 0 AND monthly_repayment IS NOT NULL ORDER BY created_at DESC LIMIT 1";
+
+        // hold the writer for the whole read-modify-write so no other session repays the same loan in between
+        try (OperationMetrics.Timer timer = LOAN_REPAY.time();
+             ConnectionPool.Lease lease = pool.writer()) {
+            PreparedStatement stmt = lease.prepare(sql);
+            Connection conn = lease.connection();
             stmt.setString(1, email);
-            ResultSet rs = stmt.executeQuery();
 
-            if (!rs.next()) {
-                System.out.println("No active loan to repay.");
-                return;
-            }
+            int loanId;
+            long balance;
+            long months;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    System.out.println("No active loan to repay.");
+                    return 0;
+                }
 
-            int loanId = rs.getInt("id");
-            double balance = rs.getDouble("outstanding_balance");
-            double months = rs.getDouble("monthly_repayment");
-            double repaymentAmount = Math.min(balance, months);
+                loanId = rs.getInt("id");
+                balance = rs.getLong("outstanding_balance");
+                months = rs.getLong("monthly_repayment");
+            }
+            long repaymentAmount = Math.min(balance, months);
+            long repaid = -1;
+            String timestamp = journal == null ? null : journal.timestamp();
+            PostingJournal.Appended appended = null;
 
             conn.setAutoCommit(false);
             try {
                 // Insert a debit transaction for repayment
-                String insertTransaction = "INSERT INTO transactions (type, amount, description, user_email) " +
-                        "VALUES ('Credit', ?, 'Loan repayment', ?)";
-                try (PreparedStatement txnStmt = conn.prepareStatement(insertTransaction)) {
-                    txnStmt.setDouble(1, repaymentAmount);
-                    txnStmt.setString(2, email);
-                    txnStmt.executeUpdate();
-                }
-
-                // Update loan balance and possibly status
-                double newBalance = balance - repaymentAmount;
-                String updateLoan = "UPDATE loans SET outstanding_balance = ?, status = ? WHERE id = ?";
-                try (PreparedStatement updLoan = conn.prepareStatement(updateLoan)) {
-                    updLoan.setDouble(1, newBalance);
-                    updLoan.setString(2, (newBalance <= 0.01) ? "repaid" : "active");
-                    updLoan.setInt(3, loanId);
-                    updLoan.executeUpdate();
+                String insertTransaction = "INSERT INTO transactions (type, amount, description, user_email, category_id, timestamp) " +
+                        "VALUES ('Credit', ?, 'Loan repayment', ?, ?, COALESCE(?, CURRENT_TIMESTAMP))";
+                PreparedStatement txnStmt = lease.prepare(insertTransaction);
+                txnStmt.setLong(1, repaymentAmount);
+                txnStmt.setString(2, email);
+                txnStmt.setInt(3, Categorizer.categorize("Loan repayment"));
+                txnStmt.setString(4, timestamp);
+                txnStmt.executeUpdate();
+
+                // Update loan balance, next due installment and possibly status
+                long newBalance = balance - repaymentAmount;
+                LocalDate nextDue = LoanSchedule.applyPayment(lease, loanId, repaymentAmount, timestamp);
+                String updateLoan = "UPDATE loans SET outstanding_balance = ?, status = ?, next_payment_date = ? WHERE id = ?";
+                PreparedStatement updLoan = lease.prepare(updateLoan);
+                updLoan.setLong(1, newBalance);
+                updLoan.setString(2, newBalance == 0 ? "repaid" : "active");
+                updLoan.setString(3, nextDue == null ? null : nextDue.toString());
+                updLoan.setInt(4, loanId);
+                updLoan.executeUpdate();
+
+                // reminders for installments that are now settled
+                PreparedStatement clear = lease.prepare(
+                        "DELETE FROM loan_reminders WHERE loan_id = ? AND due_date < COALESCE(?, '9999-12-31')");
+                clear.setInt(1, loanId);
+                clear.setString(2, nextDue == null ? null : nextDue.toString());
+                clear.executeUpdate();
+
+                if (journal != null) {
+                    appended = journal.append(lease, new PostingJournal.Repayment(timestamp, email, loanId, repaymentAmount));
                 }
-
                 conn.commit();
-                System.out.println("Repayment of " + repaymentAmount + " successful.");
+                AccountSnapshotCache.invalidate(email);
+                System.out.println("Repayment of " + Money.format(repaymentAmount) + " successful.");
+                repaid = repaymentAmount;
             } catch (SQLException e) {
                 try {
                     conn.rollback();
                 } catch (SQLException ex) {
                     ex.printStackTrace();
                 }
+                if (journal != null) {
+                    journal.discard(appended);
+                }
+                LOAN_REPAY.error(e);
                 System.out.println("Error during repayment.");
             } finally {
                 try {
@@ -495,97 +749,147 @@ public class DatabaseHandler {
                 }
             }
 
+            // the repayment may have settled the overdue installment that blocked this user
+            if (DelinquencyTracker.refresh(lease, email, LocalDate.now())) {
+                System.out.println("You still have overdue loan installments.");
+            }
+            return repaid;
         } catch (SQLException e) {
+            LOAN_REPAY.error(e);
             e.printStackTrace();
+            return -1;
         }
     }
 
-    public double getLoanBalance(String email) {
+    @SuppressWarnings("try")
+    public long getLoanBalance(String email) {
         String sql = "SELECT COALESCE(SUM(outstanding_balance), 0) FROM loans WHERE user_email = ? AND status = 'active' AND outstanding_balance > 0";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
-            pstmt.setString(1, email);
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next() ? rs.getDouble(1) : 0.0;
+        try (OperationMetrics.Timer timer = LOAN_BALANCE.time();
+             ConnectionPool.Lease lease = pool.reader();
+             ResultSet rs = executeQuery(lease.prepare(sql), email)) {
+            return rs.next() ? rs.getLong(1) : 0;
         } catch (SQLException e) {
+            LOAN_BALANCE.error(e);
             System.err.println("Error getting loan balance: " + e.getMessage());
-            return 0.0;
+            return 0;
         }
     }
 
-    public boolean isBlocked(int userId) {
-        String sql = "SELECT * FROM loans WHERE user_email = ? AND status = 'active' AND outstanding_balance > 0 AND created_at <= date('now', '-repayment_period months')";
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
-            stmt.setInt(1, userId);
-            ResultSet rs = stmt.executeQuery();
-            return rs.next();
+    // in-memory lookup kept current by DelinquencyTracker, so guards cost no query
+    public boolean isBlocked(String email) {
+        return DelinquencyTracker.isBlocked(email);
+    }
+
+    /** Balance, savings and outstanding loans in one cached read, for the account summary. */
+    public AccountSnapshotCache.AccountSnapshot getAccountSnapshot(String email) {
+        try {
+            return AccountSnapshotCache.get(pool, email);
         } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
+            System.err.println("Error loading account summary: " + e.getMessage());
+            return new AccountSnapshotCache.AccountSnapshot(0, 0, 0);
         }
     }
 
-    public double getBalance(String email) {
-        String sql = "SELECT SUM(CASE " +
-                "WHEN type = 'Credit' THEN -amount " +
-                "WHEN type = 'Debit' THEN amount " +
-                "ELSE 0 END) AS balance " +
-                "FROM transactions WHERE user_email = ?";
-        try (PreparedStatement ps = getConnection().prepareStatement(sql)) {
+    @SuppressWarnings("try")
+    public long getBalance(String email) {
+        // maintained by trg_transactions_balance, so this is a single primary-key lookup
+        String sql = "SELECT balance FROM balances WHERE user_email = ?";
+        try (OperationMetrics.Timer timer = BALANCE_READ.time();
+             ConnectionPool.Lease lease = pool.reader()) {
+            PreparedStatement ps = lease.prepare(sql);
             ps.setString(1, email);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getDouble("balance");
+                    return rs.getLong("balance");
                 }
             }
         } catch (SQLException e) {
+            BALANCE_READ.error(e);
             System.err.println("Error fetching balance:");
             e.printStackTrace();
         }
-        return 0.0;
+        return 0;
     }
 
+    @SuppressWarnings("try")
     public static void exportVisualizationData() {
-        try (Statement stmt = conn.createStatement()) {
+        try (OperationMetrics.Timer timer = BI_VIEWS.time();
+             ConnectionPool.Lease lease = pool.writer();
+             Statement stmt = lease.connection().createStatement()) {
             // Create views for Power BI
-            stmt.execute("CREATE VIEW IF NOT EXISTS vw_spending_trends AS " +
-                    "SELECT date(timestamp) AS day, SUM(amount) AS total, type " +
-                    "FROM transactions WHERE type = 'Debit' " +
-                    "GROUP BY day, type");
-
-            stmt.execute("CREATE VIEW IF NOT EXISTS vw_savings_growth AS " +
-                    "SELECT date(timestamp) AS day, SUM(amount) AS savings_balance " +
-                    "FROM transactions WHERE description LIKE '%savings%' " +
-                    "GROUP BY day");
-
-            stmt.execute("CREATE VIEW IF NOT EXISTS vw_loan_repayments AS " +
-                    "SELECT date(timestamp) AS day, SUM(amount) AS payment " +
-                    "FROM transactions WHERE description LIKE '%loan repayment%' " +
-                    "GROUP BY day");
-
-            stmt.execute("CREATE VIEW IF NOT EXISTS vw_spending_categories AS " +
-                    "SELECT " +
-                    "  CASE " +
-                    "    WHEN description LIKE '%food%' THEN 'Food' " +
-                    "    WHEN description LIKE '%rent%' THEN 'Housing' " +
-                    "    WHEN description LIKE '%transport%' THEN 'Transport' " +
-                    "    ELSE 'Other' " +
-                    "  END AS category, " +
-                    "  SUM(amount) AS amount " +
-                    "FROM transactions WHERE type = 'Debit' " +
-                    "GROUP BY category");
+            ReportingViews.createAll(stmt);
 
             System.out.println("\nViews for visualization created. You can now use Power BI to access them.");
 
         } catch (SQLException e) {
+            BI_VIEWS.error(e);
             System.err.println("Error creating visualization views: " + e.getMessage());
         }
     }
 
+    // Recomputes daily_rollups from the transactions, e.g. after editing the ledger with triggers disabled.
+    @SuppressWarnings("try")
+    public static boolean rebuildReportingRollups() {
+        try (OperationMetrics.Timer timer = BI_ROLLUPS_REBUILD.time()) {
+            ReportingRollups.rebuildAll(pool);
+            return true;
+        } catch (SQLException e) {
+            BI_ROLLUPS_REBUILD.error(e);
+            System.err.println("Error rebuilding reporting rollups: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Reapplies the category dictionary to every transaction, e.g. after keywords were added.
+    @SuppressWarnings("try")
+    public static boolean recategorizeTransactions() {
+        try (OperationMetrics.Timer timer = TXN_RECATEGORIZE.time()) {
+            Categorizer.recategorizeAll(pool);
+            return true;
+        } catch (SQLException e) {
+            TXN_RECATEGORIZE.error(e);
+            System.err.println("Error recategorizing transactions: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Writes every transaction to a columnar file for analytics; see ColumnarExporter.
+    public static boolean exportColumnar(Path output) {
+        try {
+            ColumnarExporter.report(ColumnarExporter.export(pool, output), output);
+            return true;
+        } catch (SQLException | IOException e) {
+            System.err.println("Error exporting transactions: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Closes every pooled connection; only call this when the whole application is shutting down.
     public static void disconnectDatabase() throws SQLException {
-        if (conn != null && !conn.isClosed()) {
-            conn.close();
-            conn = null;
+        if (groupCommit != null) {
+            groupCommit.close();
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing the posting journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+        Metrics.stopReporter();
+        if (pool != null) {
+            System.out.print(Metrics.dump());
+            System.out.println(postingStatsSummary());
+            groupCommit = null;
+            System.out.println(AccountSnapshotCache.summary());
+            System.out.println(Authenticator.summary());
+            System.out.println("Statement cache: " + pool.statementCacheHits() + " hits, "
+                    + pool.statementCacheMisses() + " misses, "
+                    + pool.statementCacheEvictions() + " evictions");
+            pool.close();
+            pool = null;
             System.out.println("Database connection closed.");
         }
     }
-}
+}
\ No newline at end of file
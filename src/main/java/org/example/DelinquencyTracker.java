@@ -0,0 +1,107 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which users are blocked from transacting because a loan installment is overdue.
+ *
+ * The {@code delinquency} table holds one row per user with an overdue installment
+ * (overdue since the oldest unpaid due date) and whether that has lasted long enough to
+ * block them. The blocked users are mirrored in an in-memory set, so the guard in front
+ * of every credit and debit is a hash lookup rather than a query. The table is rebuilt by
+ * the daily scheduler job and refreshed per user whenever that user repays.
+ */
+public class DelinquencyTracker {
+    public static final int BLOCK_AFTER_DAYS = Integer.getInteger("ledger.loans.blockAfterDays", 0);
+
+    private static final Set<String> BLOCKED = ConcurrentHashMap.newKeySet();
+
+    private static final String OVERDUE_SQL = "SELECT user_email, MIN(next_payment_date), " +
+            "MIN(next_payment_date) < ? FROM loans WHERE status = 'active' AND next_payment_date < ? " +
+            // same loans repayLoan can pay, so a block can always be cleared by repaying
+            "AND outstanding_balance > 0 AND monthly_repayment IS NOT NULL";
+
+    /** True if {@code email} has an installment overdue for longer than the grace period. */
+    public static boolean isBlocked(String email) {
+        return BLOCKED.contains(email);
+    }
+
+    /** Loads the blocked set from the table; called once the schema is in place. */
+    static void load(ConnectionPool pool) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.reader();
+             ResultSet rs = lease.prepare("SELECT user_email FROM delinquency WHERE blocked = 1").executeQuery()) {
+            BLOCKED.clear();
+            while (rs.next()) {
+                BLOCKED.add(rs.getString(1));
+            }
+        }
+    }
+
+    /**
+     * Recomputes every user's state with one range scan of idx_loans_next_due and reloads
+     * the in-memory set. Returns the number of blocked users.
+     */
+    public static int refreshAll(ConnectionPool pool, LocalDate today) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false);
+            try {
+                rebuild(conn, today);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            load(pool);
+        }
+        System.out.println("Delinquency refreshed: " + BLOCKED.size() + " users blocked.");
+        return BLOCKED.size();
+    }
+
+    /** Replaces the table contents with the state as of {@code today}; also used by the schema migration. */
+    static void rebuild(Connection conn, LocalDate today) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM delinquency");
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO delinquency " +
+                     "(user_email, overdue_since, blocked) " + OVERDUE_SQL + " GROUP BY user_email")) {
+            delete.executeUpdate();
+            bindDates(insert, 1, today);
+            insert.executeUpdate();
+        }
+    }
+
+    /** Recomputes one user's state, e.g. after a repayment; runs under the caller's writer lease. */
+    static boolean refresh(ConnectionPool.Lease lease, String email, LocalDate today) throws SQLException {
+        PreparedStatement delete = lease.prepare("DELETE FROM delinquency WHERE user_email = ?");
+        delete.setString(1, email);
+        delete.executeUpdate();
+
+        PreparedStatement insert = lease.prepare("INSERT INTO delinquency (user_email, overdue_since, blocked) " +
+                OVERDUE_SQL + " AND user_email = ? GROUP BY user_email RETURNING blocked");
+        bindDates(insert, 1, today);
+        insert.setString(3, email);
+        boolean blocked;
+        try (ResultSet rs = insert.executeQuery()) {
+            blocked = rs.next() && rs.getBoolean(1);
+        }
+
+        if (blocked) {
+            BLOCKED.add(email);
+        } else {
+            BLOCKED.remove(email);
+        }
+        return blocked;
+    }
+
+    private static void bindDates(PreparedStatement ps, int index, LocalDate today) throws SQLException {
+        ps.setString(index, today.minusDays(BLOCK_AFTER_DAYS).toString());
+        ps.setString(index + 1, today.toString());
+    }
+}
@@ -0,0 +1,200 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-writer queue that coalesces postings into shared SQLite transactions.
+ *
+ * Callers enqueue a posting and get a future back. A dedicated thread takes the first
+ * waiting posting, keeps collecting until either {@code maxBatch} postings are queued or
+ * {@code maxLinger} has passed, then inserts them all in one transaction and completes
+ * every future once that commit returns. Many concurrent postings therefore share one
+ * commit (and one fsync under {@code ledger.db.synchronous=FULL}) instead of paying
+ * for one each.
+ */
+public class GroupCommitWriter implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final OperationMetrics GROUP_COMMIT = Metrics.operation("txn.group.commit");
+    private static final OperationMetrics GROUPED_INSERT = Metrics.operation("txn.insert.grouped");
+
+    private record Pending(String type, long amount, String description, String email,
+                           long enqueuedNanos, CompletableFuture<Void> done) {
+    }
+
+    private final ConnectionPool pool;
+    private final int maxBatch;
+    private final long maxLingerNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final PostingStats stats = new PostingStats("group commit");
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public GroupCommitWriter(ConnectionPool pool, int maxBatch, long maxLingerMillis) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("maxBatch must be at least 1");
+        }
+        this.pool = pool;
+        this.maxBatch = maxBatch;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+        this.thread = new Thread(this::run, "ledger-group-commit");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a posting. Blocks while the queue is full, which pushes back on callers when
+     * the writer falls behind. The future completes once the posting is committed.
+     */
+    public CompletableFuture<Void> submit(String type, long amount, String description, String email) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!running || !thread.isAlive()) {
+            done.completeExceptionally(new IllegalStateException("Group commit writer is closed"));
+            return done;
+        }
+        Pending pending = new Pending(type, amount, description, email, System.nanoTime(), done);
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done.completeExceptionally(e);
+            return done;
+        }
+        // the writer may have died after the check above; nothing would ever take this posting
+        if (!thread.isAlive() && queue.remove(pending)) {
+            done.completeExceptionally(new IllegalStateException("Group commit writer is closed"));
+        }
+        return done;
+    }
+
+    public PostingStats stats() {
+        return stats;
+    }
+
+    private void run() {
+        try {
+            collect();
+        } finally {
+            // normally empty; after an Error that killed the loop it keeps callers from waiting forever
+            failQueued();
+        }
+    }
+
+    private void collect() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxLingerNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    private void commit(List<Pending> batch) {
+        PostingJournal journal = DatabaseHandler.journal;
+        try (OperationMetrics.Timer timer = GROUP_COMMIT.time();
+             ConnectionPool.Lease lease = pool.writer()) {
+            Connection conn = lease.connection();
+            String timestamp = journal == null ? null : journal.timestamp();
+            PostingJournal.Appended appended = null;
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement ps = lease.prepare(DatabaseHandler.INSERT_TRANSACTION_SQL);
+                for (Pending pending : batch) {
+                    ps.setString(1, pending.type());
+                    ps.setLong(2, pending.amount());
+                    ps.setString(3, pending.description());
+                    ps.setString(4, pending.email());
+                    ps.setInt(5, Categorizer.categorize(pending.description()));
+                    ps.setString(6, timestamp);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                // the whole group is one journal entry, as it is one commit
+                if (journal != null) {
+                    List<PostingJournal.Posting> postings = new ArrayList<>(batch.size());
+                    for (Pending pending : batch) {
+                        postings.add(new PostingJournal.Posting(pending.type(), pending.amount(),
+                                pending.description(), pending.email()));
+                    }
+                    appended = journal.append(lease, new PostingJournal.Postings(timestamp, postings));
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                if (journal != null) {
+                    journal.discard(appended);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // only this batch fails; the writer thread carries on with the next one
+            GROUP_COMMIT.error(e);
+            System.err.println("Error committing " + batch.size() + " grouped transactions: " + e.getMessage());
+            for (Pending pending : batch) {
+                pending.done().completeExceptionally(e);
+            }
+            return;
+        }
+
+        stats.recordCommit();
+        long now = System.nanoTime();
+        for (Pending pending : batch) {
+            stats.recordPosting(now - pending.enqueuedNanos());
+            GROUPED_INSERT.record(now - pending.enqueuedNanos());
+            AccountSnapshotCache.posted(pending.email(), pending.type(), pending.amount());
+            pending.done().complete(null);
+        }
+    }
+
+    /** Stops accepting postings, commits everything already queued and stops the writer thread. */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // anything that slipped in after the writer's last poll would otherwise wait forever
+        failQueued();
+    }
+
+    private void failQueued() {
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.done().completeExceptionally(new IllegalStateException("Group commit writer is closed"));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.example;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs recurring jobs (savings sweep, loan reminders, ...) on wall-clock schedules.
+ *
+ * Every fire time maps to a period key ({@code 2026-10} for month-end jobs,
+ * {@code 2026-10-31} for daily ones) and each execution is recorded in {@code job_runs}
+ * under that key. On start the scheduler compares the schedule against that table and
+ * runs any period that never succeeded, so a month-end that passed while the process was
+ * down is caught up instead of skipped. Each next fire time is computed from the calendar
+ * rather than a fixed period, so runs do not drift from the configured time of day.
+ */
+public class JobScheduler implements AutoCloseable {
+    private static final int MAX_CATCH_UP = Integer.getInteger("ledger.jobs.maxCatchUp", 12);
+
+    /** Calendar rule: the next fire time strictly after a given instant, and the period key for a fire time. */
+    public interface Schedule {
+        ZonedDateTime next(ZonedDateTime after);
+
+        String period(ZonedDateTime fireTime);
+
+        static Schedule daily(LocalTime at) {
+            return new Schedule() {
+                public ZonedDateTime next(ZonedDateTime after) {
+                    ZonedDateTime candidate = after.with(at);
+                    return candidate.isAfter(after) ? candidate : after.plusDays(1).with(at);
+                }
+
+                public String period(ZonedDateTime fireTime) {
+                    return fireTime.toLocalDate().toString();
+                }
+            };
+        }
+
+        static Schedule monthEnd(LocalTime at) {
+            return new Schedule() {
+                public ZonedDateTime next(ZonedDateTime after) {
+                    ZonedDateTime candidate = lastDay(after).with(at);
+                    return candidate.isAfter(after) ? candidate : lastDay(after.plusMonths(1).withDayOfMonth(1)).with(at);
+                }
+
+                public String period(ZonedDateTime fireTime) {
+                    return DateTimeFormatter.ofPattern("yyyy-MM").format(fireTime);
+                }
+
+                private ZonedDateTime lastDay(ZonedDateTime date) {
+                    return date.withDayOfMonth(date.toLocalDate().lengthOfMonth());
+                }
+            };
+        }
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        void run(String period) throws Exception;
+    }
+
+    public record Job(String name, Schedule schedule, Task task) {
+    }
+
+    private final ConnectionPool pool;
+    private final ZoneId zone;
+    private final ScheduledThreadPoolExecutor executor;
+    private final List<Job> jobs = new ArrayList<>();
+
+    public JobScheduler(ConnectionPool pool, int threads) {
+        this(pool, threads, ZoneId.systemDefault());
+    }
+
+    public JobScheduler(ConnectionPool pool, int threads, ZoneId zone) {
+        this.pool = pool;
+        this.zone = zone;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "ledger-jobs-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public synchronized void register(Job job) {
+        jobs.add(job);
+    }
+
+    /** Queues catch-up runs for missed periods, then arms every job for its next fire time. */
+    public synchronized void start() {
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        for (Job job : jobs) {
+            try {
+                List<ZonedDateTime> missed = missedRuns(job, now);
+                if (!missed.isEmpty()) {
+                    System.out.println("Catching up " + missed.size() + " missed run(s) of " + job.name());
+                }
+                executor.execute(() -> {
+                    for (ZonedDateTime fireTime : missed) {
+                        execute(job, fireTime);
+                    }
+                    arm(job, ZonedDateTime.now(zone));
+                });
+            } catch (SQLException e) {
+                System.err.println("Error scheduling job " + job.name() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void arm(Job job, ZonedDateTime after) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        ZonedDateTime fireTime = job.schedule().next(after);
+        long delay = Math.max(0, fireTime.toInstant().toEpochMilli() - System.currentTimeMillis());
+        executor.schedule(() -> {
+            execute(job, fireTime);
+            arm(job, fireTime);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fire times up to {@code now} whose period has no successful run yet. The first time a
+     * job is seen there is no history to compare against, so its latest past fire time is
+     * recorded as the baseline and nothing before it is replayed.
+     */
+    List<ZonedDateTime> missedRuns(Job job, ZonedDateTime now) throws SQLException {
+        ZonedDateTime anchor;
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            PreparedStatement last = lease.prepare(
+                    "SELECT MAX(scheduled_for) FROM job_runs WHERE job = ? AND status IN ('succeeded', 'baseline')");
+            last.setString(1, job.name());
+            try (ResultSet rs = last.executeQuery()) {
+                long millis = rs.next() ? rs.getLong(1) : 0;
+                anchor = rs.wasNull() ? null : Instant.ofEpochMilli(millis).atZone(zone);
+            }
+
+            if (anchor == null) {
+                ZonedDateTime baseline = previousFireTime(job.schedule(), now);
+                PreparedStatement insert = lease.prepare("INSERT OR IGNORE INTO job_runs" +
+                        "(job, period, scheduled_for, status, finished_at) VALUES(?, ?, ?, 'baseline', CURRENT_TIMESTAMP)");
+                insert.setString(1, job.name());
+                insert.setString(2, job.schedule().period(baseline));
+                insert.setLong(3, baseline.toInstant().toEpochMilli());
+                insert.executeUpdate();
+                return List.of();
+            }
+        }
+
+        List<ZonedDateTime> missed = new ArrayList<>();
+        for (ZonedDateTime t = job.schedule().next(anchor); !t.isAfter(now); t = job.schedule().next(t)) {
+            missed.add(t);
+        }
+        if (missed.size() > MAX_CATCH_UP) {
+            System.out.println("Job " + job.name() + " missed " + missed.size()
+                    + " runs; only the latest " + MAX_CATCH_UP + " will be caught up.");
+            missed = new ArrayList<>(missed.subList(missed.size() - MAX_CATCH_UP, missed.size()));
+        }
+        return missed;
+    }
+
+    private static ZonedDateTime previousFireTime(Schedule schedule, ZonedDateTime now) {
+        // step back far enough that at least one fire time lies between there and now
+        ZonedDateTime previous = schedule.next(now.minusMonths(2));
+        for (ZonedDateTime t = previous; !t.isAfter(now); t = schedule.next(t)) {
+            previous = t;
+        }
+        return previous;
+    }
+
+    @SuppressWarnings("try")
+    void execute(Job job, ZonedDateTime fireTime) {
+        String period = job.schedule().period(fireTime);
+        OperationMetrics metrics = Metrics.operation("job." + job.name());
+        try {
+            if (!claim(job, period, fireTime)) {
+                return; // another process already finished this period
+            }
+            try (OperationMetrics.Timer timer = metrics.time()) {
+                job.task().run(period);
+            }
+            finish(job, period, "succeeded", null);
+        } catch (Exception e) {
+            metrics.error(e);
+            System.err.println("Job " + job.name() + " failed for " + period + ": " + e.getMessage());
+            try {
+                finish(job, period, "failed", e.getMessage());
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private boolean claim(Job job, String period, ZonedDateTime fireTime) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            PreparedStatement ps = lease.prepare("""
+                INSERT INTO job_runs (job, period, scheduled_for, status, started_at, attempts)
+                VALUES (?, ?, ?, 'running', CURRENT_TIMESTAMP, 1)
+                ON CONFLICT (job, period) DO UPDATE SET
+                    status = 'running', started_at = CURRENT_TIMESTAMP, finished_at = NULL,
+                    message = NULL, attempts = attempts + 1
+                WHERE status NOT IN ('succeeded', 'baseline')
+                """);
+            ps.setString(1, job.name());
+            ps.setString(2, period);
+            ps.setLong(3, fireTime.toInstant().toEpochMilli());
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    private void finish(Job job, String period, String status, String message) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            PreparedStatement ps = lease.prepare("UPDATE job_runs SET status = ?, message = ?, " +
+                    "finished_at = CURRENT_TIMESTAMP WHERE job = ? AND period = ?");
+            ps.setString(1, status);
+            ps.setString(2, message);
+            ps.setString(3, job.name());
+            ps.setString(4, period);
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.example;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Just enough JSON for {@link LedgerServer}: request bodies are flat objects, responses
+ * are written straight into a StringBuilder. Request values are kept as their source text,
+ * so an amount such as {@code 12.30} reaches {@link Money#parse} without passing through a
+ * double.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /** Parses a flat object of string, number, boolean and null members; nesting is rejected. */
+    static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> members = new HashMap<>();
+        parser.skipWhitespace();
+        if (parser.atEnd()) {
+            return members;
+        }
+        parser.expect('{');
+        parser.skipWhitespace();
+        if (!parser.consume('}')) {
+            do {
+                parser.skipWhitespace();
+                String name = parser.string();
+                parser.skipWhitespace();
+                parser.expect(':');
+                parser.skipWhitespace();
+                members.put(name, parser.value());
+                parser.skipWhitespace();
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw parser.error("trailing characters");
+        }
+        return members;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        boolean atEnd() {
+            return pos >= text.length();
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean consume(char c) {
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        String value() {
+            if (atEnd()) {
+                throw error("expected a value");
+            }
+            char c = text.charAt(pos);
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw error("nested values are not supported");
+            }
+            int start = pos;
+            while (pos < text.length() && ",}".indexOf(text.charAt(pos)) < 0
+                    && !Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.isEmpty()) {
+                throw error("expected a value");
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (true) {
+                if (atEnd()) {
+                    throw error("unterminated string");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                if (atEnd()) {
+                    throw error("unterminated escape");
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case 'n' -> out.append('\n');
+                    case 'r' -> out.append('\r');
+                    case 't' -> out.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw error("bad unicode escape");
+                        }
+                        out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> out.append(escaped);
+                }
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Malformed JSON at offset " + pos + ": " + message);
+        }
+    }
+
+    /** Streams a JSON document; {@code name} is null for array elements and the root. */
+    static final class Writer {
+        private final StringBuilder out = new StringBuilder(256);
+        private boolean first = true;
+
+        Writer beginObject(String name) {
+            return open(name, '{');
+        }
+
+        Writer beginArray(String name) {
+            return open(name, '[');
+        }
+
+        Writer endObject() {
+            return close('}');
+        }
+
+        Writer endArray() {
+            return close(']');
+        }
+
+        Writer field(String name, String value) {
+            member(name);
+            if (value == null) {
+                out.append("null");
+            } else {
+                quote(value);
+            }
+            return this;
+        }
+
+        Writer field(String name, long value) {
+            member(name).append(value);
+            return this;
+        }
+
+        Writer field(String name, boolean value) {
+            member(name).append(value);
+            return this;
+        }
+
+        /** An amount in minor units, written as an exact decimal number. */
+        Writer money(String name, long minor) {
+            Money.appendTo(member(name), minor);
+            return this;
+        }
+
+        private Writer open(String name, char bracket) {
+            member(name).append(bracket);
+            first = true;
+            return this;
+        }
+
+        private Writer close(char bracket) {
+            out.append(bracket);
+            first = false;
+            return this;
+        }
+
+        private StringBuilder member(String name) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            if (name != null) {
+                quote(name);
+                out.append(':');
+            }
+            return out;
+        }
+
+        private void quote(String value) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+            out.append('"');
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless JSON service over the JDK's built-in HttpServer, started with {@code --server}.
+ *
+ * Every request runs on its own virtual thread, so a client blocked on the database or
+ * on a bcrypt check costs a few kilobytes rather than a platform thread. Sessions are
+ * bearer tokens issued by {@code POST /api/login} and expire after
+ * {@code ledger.server.sessionMinutes} of inactivity; the session, not a static field,
+ * carries the user's email, so any number of users can be signed in at once.
+ *
+ * Amounts are decimal numbers in major units on the wire and minor units inside.
+ */
+public class LedgerServer {
+    public static final int PORT = Integer.getInteger("ledger.server.port", 8080);
+    private static final long SESSION_IDLE_NANOS =
+            TimeUnit.MINUTES.toNanos(Long.getLong("ledger.server.sessionMinutes", 30));
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final OperationMetrics HTTP_REQUEST = Metrics.operation("http.request");
+
+    private record Session(String email, long lastSeenNanos) {
+    }
+
+    private record Request(HttpExchange exchange, Map<String, String> body, Map<String, String> query, String email) {
+        String required(String name) {
+            String value = body.get(name);
+            if (value == null || value.isBlank()) {
+                throw new ApiException(400, "Missing '" + name + "'.");
+            }
+            return value;
+        }
+
+        long amount(String name) {
+            try {
+                return Money.parse(required(name));
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new ApiException(400, "'" + name + "' is not an amount.");
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        /** Writes the response members and returns the HTTP status. */
+        int handle(Request request, Json.Writer out) throws Exception;
+    }
+
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final DatabaseHandler db;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong logins = new AtomicLong();
+
+    private LedgerServer(DatabaseHandler db, int port) throws IOException {
+        this.db = db;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+
+        route("/api/register", "POST", false, this::register);
+        route("/api/login", "POST", false, this::login);
+        route("/api/logout", "POST", true, this::logout);
+        route("/api/account", "GET", true, this::account);
+        route("/api/debit", "POST", true, this::debit);
+        route("/api/credit", "POST", true, this::credit);
+        route("/api/history", "GET", true, this::history);
+        route("/api/search", "GET", true, this::search);
+        route("/api/savings", "POST", true, this::savings);
+        route("/api/loans", "POST", true, this::applyLoan);
+        route("/api/loans/repay", "POST", true, this::repayLoan);
+    }
+
+    public static LedgerServer start(DatabaseHandler db, int port) throws IOException {
+        LedgerServer ledgerServer = new LedgerServer(db, port);
+        ledgerServer.server.start();
+        System.out.println("Ledger server listening on port " + ledgerServer.server.getAddress().getPort());
+        return ledgerServer;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Stops accepting requests, gives in-flight ones a second to finish, and ends all sessions. */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        sessions.clear();
+        System.out.println("Ledger server stopped.");
+    }
+
+    // ====== Endpoints ======
+
+    private int register(Request request, Json.Writer out) {
+        String name = request.required("name");
+        String email = request.required("email");
+        String password = request.required("password");
+        if (!Main.isValidName(name) || !Main.isValidEmail(email)) {
+            throw new ApiException(400, "Invalid name or email.");
+        }
+        if (!Main.isValidPassword(password)) {
+            throw new ApiException(400, "Password must be at least 8 characters with an uppercase letter, "
+                    + "a lowercase letter, a digit and a special character.");
+        }
+        if (db.userExists(email) || !db.insertUser(name, email, password)) {
+            throw new ApiException(409, "Email already registered.");
+        }
+        out.field("email", email);
+        return 201;
+    }
+
+    private int login(Request request, Json.Writer out) {
+        String email = request.required("email");
+        switch (db.login(email, request.required("password"))) {
+            case OK -> {
+            }
+            case BUSY -> {
+                request.exchange().getResponseHeaders().set("Retry-After", "1");
+                throw new ApiException(503, "Too many logins at once, please try again.");
+            }
+            default -> throw new ApiException(401, "Incorrect email or password.");
+        }
+
+        // expired sessions are otherwise only dropped when their token is used again
+        if (logins.incrementAndGet() % 1024 == 0) {
+            long now = System.nanoTime();
+            sessions.values().removeIf(session -> now - session.lastSeenNanos() > SESSION_IDLE_NANOS);
+        }
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(email, System.nanoTime()));
+
+        out.field("token", token);
+        out.field("expiresInSeconds", TimeUnit.NANOSECONDS.toSeconds(SESSION_IDLE_NANOS));
+        return 200;
+    }
+
+    private int logout(Request request, Json.Writer out) {
+        sessions.remove(token(request.exchange()));
+        return 200;
+    }
+
+    private int account(Request request, Json.Writer out) {
+        AccountSnapshotCache.AccountSnapshot account = db.getAccountSnapshot(request.email());
+        out.field("email", request.email());
+        out.money("balance", account.balance());
+        out.money("savings", account.savings());
+        out.money("loanBalance", account.loanBalance());
+        out.field("blocked", db.isBlocked(request.email()));
+        return 200;
+    }
+
+    private int debit(Request request, Json.Writer out) {
+        requireNotBlocked(request.email());
+        long amount = request.amount("amount");
+        String description = request.required("description");
+        String error = PostingRules.checkDebit(amount, description);
+        if (error != null) {
+            throw new ApiException(400, error);
+        }
+
+        if (!DatabaseHandler.saveTransaction("Debit", amount, description, request.email())) {
+            throw new ApiException(500, "The transaction could not be saved.");
+        }
+        out.money("balance", db.getBalance(request.email()));
+        return 201;
+    }
+
+    @SuppressWarnings("try")
+    private int credit(Request request, Json.Writer out) throws SQLException {
+        requireNotBlocked(request.email());
+        long amount = request.amount("amount");
+        String description = request.required("description");
+
+        // unlike the console, one user can have requests in flight concurrently: hold the
+        // writer across the balance check and the posting so two credits cannot both pass
+        long balance;
+        try (ConnectionPool.Lease lease = DatabaseHandler.getPool().writer()) {
+            balance = db.getBalance(request.email());
+            String error = PostingRules.checkCredit(amount, description, balance);
+            if (error != null) {
+                throw new ApiException(400, error);
+            }
+            if (!DatabaseHandler.saveTransaction("Credit", amount, description, request.email())) {
+                throw new ApiException(500, "The transaction could not be saved.");
+            }
+        }
+        db.processSavingsOnDebit(request.email(), amount);
+        out.money("balance", balance - amount);
+        return 201;
+    }
+
+    private int history(Request request, Json.Writer out) throws SQLException {
+        Map<String, String> query = request.query();
+        TransactionHistory.Filter filter = new TransactionHistory.Filter(
+                query.get("from"), query.get("to"), query.get("type"),
+                queryAmount(query, "min"), queryAmount(query, "max"), queryCategory(query),
+                "amount".equalsIgnoreCase(query.get("sort")), "asc".equalsIgnoreCase(query.get("order")));
+        int pageSize = TransactionHistory.DEFAULT_PAGE_SIZE;
+        if (query.containsKey("limit")) {
+            try {
+                pageSize = Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(query.get("limit"))));
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "'limit' is not a number.");
+            }
+        }
+
+        TransactionHistory.Page page;
+        if (query.containsKey("after")) {
+            page = TransactionHistory.nextPage(request.email(), filter, pageSize, decodeCursor(query.get("after")));
+        } else if (query.containsKey("before")) {
+            page = TransactionHistory.previousPage(request.email(), filter, pageSize, decodeCursor(query.get("before")));
+        } else {
+            page = TransactionHistory.firstPage(request.email(), filter, pageSize);
+        }
+
+        writeRows(out, page.rows());
+        out.field("next", encodeCursor(page.next()));
+        out.field("previous", encodeCursor(page.previous()));
+        return 200;
+    }
+
+    private int search(Request request, Json.Writer out) throws SQLException {
+        Map<String, String> query = request.query();
+        String text = query.get("q");
+        if (text == null) {
+            throw new ApiException(400, "Missing 'q'.");
+        }
+        TransactionHistory.Filter filter = new TransactionHistory.Filter(
+                query.get("from"), query.get("to"), query.get("type"),
+                queryAmount(query, "min"), queryAmount(query, "max"), queryCategory(query), false, false);
+        int limit = TransactionSearch.DEFAULT_LIMIT;
+        if (query.containsKey("limit")) {
+            try {
+                limit = Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(query.get("limit"))));
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "'limit' is not a number.");
+            }
+        }
+
+        List<TransactionHistory.Row> rows;
+        try {
+            rows = TransactionSearch.search(request.email(), text, filter, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, e.getMessage());
+        }
+        writeRows(out, rows);
+        return 200;
+    }
+
+    private static void writeRows(Json.Writer out, List<TransactionHistory.Row> rows) {
+        out.beginArray("transactions");
+        for (TransactionHistory.Row row : rows) {
+            out.beginObject(null)
+                    .field("id", row.id())
+                    .field("type", row.type())
+                    .money("amount", row.amount())
+                    .field("description", row.description())
+                    .field("timestamp", row.timestamp())
+                    .endObject();
+        }
+        out.endArray();
+    }
+
+    private int savings(Request request, Json.Writer out) {
+        int percentage;
+        try {
+            percentage = Integer.parseInt(request.required("percentage"));
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "'percentage' is not a number.");
+        }
+        if (percentage < 1 || percentage > 100) {
+            throw new ApiException(400, "Percentage must be between 1 and 100");
+        }
+        db.activateSavings(request.email(), percentage);
+        out.field("percentage", percentage);
+        out.money("saved", db.getSavings(request.email()));
+        return 200;
+    }
+
+    private int applyLoan(Request request, Json.Writer out) {
+        long principal = request.amount("principal");
+        double rate;
+        int months;
+        try {
+            rate = Double.parseDouble(request.required("rate")) / 100;
+            months = Integer.parseInt(request.required("months"));
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "'rate' and 'months' must be numbers.");
+        }
+        if (principal <= 0 || months <= 0 || rate < 0) {
+            throw new ApiException(400, "Loan needs a positive principal and term.");
+        }
+        Amortization.Method method;
+        try {
+            method = Amortization.Method.valueOf(request.body().getOrDefault("method", "FLAT").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "'method' must be FLAT or REDUCING.");
+        }
+
+        long loanId = db.applyLoan(request.email(), principal, rate, months, method);
+        if (loanId < 0) {
+            throw new ApiException(500, "The loan could not be recorded.");
+        }
+        out.field("loanId", loanId);
+        out.money("loanBalance", db.getLoanBalance(request.email()));
+        return 201;
+    }
+
+    private int repayLoan(Request request, Json.Writer out) {
+        long repaid = db.repayLoan(request.email());
+        if (repaid == 0) {
+            throw new ApiException(404, "No active loan to repay.");
+        }
+        if (repaid < 0) {
+            throw new ApiException(500, "The repayment failed.");
+        }
+        out.money("repaid", repaid);
+        out.money("loanBalance", db.getLoanBalance(request.email()));
+        out.field("blocked", db.isBlocked(request.email()));
+        return 200;
+    }
+
+    private void requireNotBlocked(String email) {
+        if (db.isBlocked(email)) {
+            throw new ApiException(403, "Cannot perform transactions - you have overdue loans!");
+        }
+    }
+
+    // ====== Plumbing ======
+
+    @SuppressWarnings("try")
+    private void route(String path, String method, boolean authenticated, Endpoint endpoint) {
+        server.createContext(path, exchange -> {
+            try (OperationMetrics.Timer timer = HTTP_REQUEST.time();
+                 exchange) {
+                Json.Writer out = new Json.Writer().beginObject(null);
+                int status;
+                try {
+                    if (!exchange.getRequestURI().getPath().equals(path)) {
+                        throw new ApiException(404, "Not found.");
+                    }
+                    if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                        exchange.getResponseHeaders().set("Allow", method);
+                        throw new ApiException(405, "Use " + method + ".");
+                    }
+                    String email = authenticated ? authenticate(exchange) : null;
+                    Request request = new Request(exchange, readBody(exchange), parseQuery(exchange), email);
+                    status = endpoint.handle(request, out);
+                } catch (ApiException e) {
+                    status = e.status;
+                    out = new Json.Writer().beginObject(null).field("error", e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    status = 400;
+                    out = new Json.Writer().beginObject(null).field("error", e.getMessage());
+                } catch (Exception e) {
+                    HTTP_REQUEST.error(e);
+                    System.err.println("Error handling " + path + ": " + e.getMessage());
+                    status = 500;
+                    out = new Json.Writer().beginObject(null).field("error", "Internal error.");
+                }
+
+                byte[] response = out.endObject().toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(status, response.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(response);
+                }
+            }
+        });
+    }
+
+    private String authenticate(HttpExchange exchange) {
+        String token = token(exchange);
+        Session session = token == null ? null : sessions.get(token);
+        long now = System.nanoTime();
+        if (session == null || now - session.lastSeenNanos() > SESSION_IDLE_NANOS) {
+            if (session != null) {
+                sessions.remove(token, session);
+            }
+            throw new ApiException(401, "Log in first.");
+        }
+        sessions.replace(token, session, new Session(session.email(), now));
+        return session.email();
+    }
+
+    private static String token(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body too large.");
+            }
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static Long queryAmount(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Money.parse(value);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new ApiException(400, "'" + name + "' is not an amount.");
+        }
+    }
+
+    private static Integer queryCategory(Map<String, String> query) {
+        String value = query.get("category");
+        if (value == null) {
+            return null;
+        }
+        Integer id = Categorizer.current().idOf(value);
+        if (id == null) {
+            throw new ApiException(400, "Unknown category '" + value + "'.");
+        }
+        return id;
+    }
+
+    // cursors travel as opaque tokens: id, amount and timestamp of the boundary row
+    private static String encodeCursor(TransactionHistory.Cursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        String text = cursor.id() + ":" + cursor.amount() + ":" + cursor.timestamp();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TransactionHistory.Cursor decodeCursor(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 3);
+            return new TransactionHistory.Cursor(parts[2], Long.parseLong(parts[1]), Long.parseLong(parts[0]));
+        } catch (RuntimeException e) {
+            throw new ApiException(400, "Invalid page cursor.");
+        }
+    }
+}
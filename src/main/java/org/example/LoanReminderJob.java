@@ -0,0 +1,36 @@
+package org.example;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Daily sweep that queues a reminder for every active loan with an installment due soon.
+ *
+ * The whole sweep is one INSERT ... SELECT driven by a range scan of idx_loans_next_due,
+ * so it touches only the loans that are actually due, across all users at once. Logins
+ * then read their queued reminders by user instead of re-deriving due dates per loan.
+ */
+public class LoanReminderJob {
+    public static final int HORIZON_DAYS = Integer.getInteger("ledger.loans.reminderDays", 7);
+
+    // INSERT OR IGNORE: a reminder already queued for the same installment is left alone
+    private static final String SWEEP_SQL = """
+        INSERT OR IGNORE INTO loan_reminders (loan_id, due_date, user_email, amount_due)
+        SELECT l.id, l.next_payment_date, l.user_email, i.amount_due - i.amount_paid
+        FROM loans l
+        JOIN loan_installments i ON i.loan_id = l.id AND i.due_date = l.next_payment_date
+        WHERE l.status = 'active' AND l.next_payment_date <= ?
+        """;
+
+    /** Queues reminders for installments due on or before {@code today + HORIZON_DAYS}; returns how many were new. */
+    public static int run(ConnectionPool pool, LocalDate today) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            PreparedStatement ps = lease.prepare(SWEEP_SQL);
+            ps.setString(1, today.plusDays(HORIZON_DAYS).toString());
+            int queued = ps.executeUpdate();
+            System.out.println("Queued " + queued + " loan reminders due by " + today.plusDays(HORIZON_DAYS));
+            return queued;
+        }
+    }
+}
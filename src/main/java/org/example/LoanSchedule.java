@@ -0,0 +1,173 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Materialized repayment schedules in {@code loan_installments}.
+ *
+ * A loan's installments are written once when it is taken out. Repayments are allocated
+ * to the oldest unpaid installments and {@code loans.next_payment_date} is moved to the
+ * first one still open, so due-date questions become index lookups on that column
+ * instead of date arithmetic over every active loan.
+ */
+public class LoanSchedule {
+    private static final String INSERT_SQL = "INSERT INTO loan_installments " +
+            "(loan_id, installment_no, due_date, amount_due, amount_paid) VALUES (?, ?, ?, ?, ?)";
+
+    /** What the borrower repays in total: the schedule's installments in minor units. */
+    static long totalDue(Amortization.Schedule schedule) {
+        long total = 0;
+        for (int i = 0; i < schedule.length(); i++) {
+            total += Money.ofMajor(schedule.payment(i));
+        }
+        return total;
+    }
+
+    /**
+     * Writes one installment per month of {@code schedule}, the first due a month after
+     * {@code start}, and returns the first due date not covered by {@code alreadyPaid}
+     * minor units (null if the whole schedule is covered).
+     */
+    static LocalDate insert(Connection conn, long loanId, LocalDate start, Amortization.Schedule schedule,
+                            long alreadyPaid) throws SQLException {
+        LocalDate next = null;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            long remaining = alreadyPaid;
+            for (int i = 0; i < schedule.length(); i++) {
+                LocalDate dueDate = start.plusMonths(i + 1);
+                long amountDue = Money.ofMajor(schedule.payment(i));
+                long paid = Math.min(amountDue, Math.max(0, remaining));
+                remaining -= paid;
+                if (next == null && paid < amountDue) {
+                    next = dueDate;
+                }
+                ps.setLong(1, loanId);
+                ps.setInt(2, i + 1);
+                ps.setString(3, dueDate.toString());
+                ps.setLong(4, amountDue);
+                ps.setLong(5, paid);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        return next;
+    }
+
+    /**
+     * Allocates {@code amount} minor units to the loan's oldest open installments and
+     * returns the due date of the first installment still open afterwards, or null when
+     * all are paid. Settled installments are stamped with {@code paidAt}, or the current time
+     * if it is null. Must run inside the caller's writer transaction.
+     */
+    static LocalDate applyPayment(ConnectionPool.Lease lease, long loanId, long amount, String paidAt)
+            throws SQLException {
+        PreparedStatement open = lease.prepare("SELECT installment_no, due_date, amount_due - amount_paid " +
+                "FROM loan_installments WHERE loan_id = ? AND amount_paid < amount_due ORDER BY installment_no");
+        PreparedStatement pay = lease.prepare("UPDATE loan_installments SET amount_paid = amount_paid + ?, " +
+                "paid_at = CASE WHEN amount_paid + ? >= amount_due THEN COALESCE(?, CURRENT_TIMESTAMP) END " +
+                "WHERE loan_id = ? AND installment_no = ?");
+
+        open.setLong(1, loanId);
+        LocalDate next = null;
+        long remaining = amount;
+        try (ResultSet rs = open.executeQuery()) {
+            while (rs.next()) {
+                long due = rs.getLong(3);
+                if (remaining == 0) {
+                    next = LocalDate.parse(rs.getString(2));
+                    break;
+                }
+                long paid = Math.min(due, remaining);
+                remaining -= paid;
+                pay.setLong(1, paid);
+                pay.setLong(2, paid);
+                pay.setString(3, paidAt);
+                pay.setLong(4, loanId);
+                pay.setInt(5, rs.getInt(1));
+                pay.addBatch();
+                if (paid < due) {
+                    next = LocalDate.parse(rs.getString(2));
+                    break;
+                }
+            }
+        }
+        pay.executeBatch();
+        return next;
+    }
+
+    /** Builds schedules for loans created before installments were tracked; run by the schema migration. */
+    static void backfill(Connection conn) throws SQLException {
+        List<Object[]> loans = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, created_at, repayment_period, principal_amount, " +
+                "interest_rate, outstanding_balance, monthly_repayment, status FROM loans " +
+                "WHERE id NOT IN (SELECT loan_id FROM loan_installments)");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int months = Math.max(1, rs.getInt(3));
+                double monthly = rs.getDouble(7);
+                double total = rs.wasNull() ? rs.getDouble(4) * (1 + rs.getDouble(5)) : monthly * months;
+                double paid = "active".equals(rs.getString(8)) ? Math.max(0, total - rs.getDouble(6)) : total;
+                loans.add(new Object[]{rs.getLong(1), createdDate(rs.getObject(2)), months, total, paid});
+            }
+        }
+
+        // these loans were all flat: equal installments of the recorded total. This runs as
+        // migration 6, while amounts were still REAL major units (migration 9 converts them),
+        // so it writes major units rather than going through insert()
+        Amortization.Schedule schedule = new Amortization.Schedule();
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL);
+             PreparedStatement update = conn.prepareStatement("UPDATE loans SET next_payment_date = ? WHERE id = ?")) {
+            for (Object[] loan : loans) {
+                long id = (Long) loan[0];
+                double total = (Double) loan[3];
+                if (total > 0) {
+                    Amortization.compute(Amortization.Scenario.of(Amortization.Method.FLAT, total, 0, (Integer) loan[2]), schedule);
+                } else {
+                    schedule.length = 0;
+                }
+                LocalDate start = (LocalDate) loan[1];
+                LocalDate next = null;
+                double remaining = (Double) loan[4];
+                for (int i = 0; i < schedule.length(); i++) {
+                    double amountDue = schedule.payment(i);
+                    double paid = Math.min(amountDue, Math.max(0, remaining));
+                    remaining -= paid;
+                    if (next == null && paid < amountDue - 0.005) {
+                        next = start.plusMonths(i + 1);
+                    }
+                    ps.setLong(1, id);
+                    ps.setInt(2, i + 1);
+                    ps.setString(3, start.plusMonths(i + 1).toString());
+                    ps.setDouble(4, amountDue);
+                    ps.setDouble(5, paid);
+                    ps.addBatch();
+                }
+                update.setString(1, next == null ? null : next.toString());
+                update.setLong(2, id);
+                update.addBatch();
+            }
+            ps.executeBatch();
+            update.executeBatch();
+        }
+        System.out.println("Built repayment schedules for " + loans.size() + " loans.");
+    }
+
+    // older rows store created_at as epoch milliseconds, newer ones as 'YYYY-MM-DD HH:MM:SS'
+    static LocalDate createdDate(Object createdAt) {
+        if (createdAt instanceof Number millis) {
+            return Instant.ofEpochMilli(millis.longValue()).atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+        if (createdAt instanceof String text && text.length() >= 10) {
+            return LocalDate.parse(text.substring(0, 10));
+        }
+        return LocalDate.now();
+    }
+}
@@ -1,7 +1,8 @@
 package org.example;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Scanner;
@@ -11,14 +12,25 @@ public class Main {
     private static final Scanner scanner = new Scanner(System.in);
     private static final DatabaseHandler db = new DatabaseHandler();
     private static String currentUserEmail;
+    private static LedgerServer server;
 
     public static void main(String[] args) {
-        // Start the automatic savings scheduler
-        db.startMonthlySavingsScheduler();
-        
+        // the tables must catch up with the replay log before they take any new write
+        if (DatabaseHandler.JOURNAL_PATH != null) {
+            try {
+                DatabaseHandler.openJournal(Path.of(DatabaseHandler.JOURNAL_PATH));
+            } catch (IOException | SQLException e) {
+                System.err.println("Error recovering from the posting journal: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
         // Ensure proper shutdown
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
+                if (server != null) {
+                    server.stop();
+                }
                 db.shutdownScheduler();
                 db.disconnectDatabase();
             } catch (SQLException e) {
@@ -26,6 +38,34 @@ public class Main {
             }
         }));
 
+        // maintenance: recompute the reporting rollups behind the Power BI views, then exit
+        if (args.length > 0 && args[0].equals("--rebuild-rollups")) {
+            System.exit(DatabaseHandler.rebuildReportingRollups() ? 0 : 1);
+        }
+        // maintenance: apply the current category_keywords to every transaction, then exit
+        if (args.length > 0 && args[0].equals("--recategorize")) {
+            System.exit(DatabaseHandler.recategorizeTransactions() ? 0 : 1);
+        }
+        // analytics: write every transaction to a columnar file (read it with ColumnarReader), then exit
+        if (args.length > 1 && args[0].equals("--export-columnar")) {
+            System.exit(DatabaseHandler.exportColumnar(Path.of(args[1])) ? 0 : 1);
+        }
+
+        // Start the scheduled jobs (month-end savings sweep), catching up any missed runs; only
+        // after the maintenance flags, so a one-off maintenance run never races a job catch-up
+        db.startScheduler();
+
+        // headless mode: serve the JSON API until the process is stopped
+        if (args.length > 0 && args[0].equals("--server")) {
+            try {
+                server = LedgerServer.start(db, LedgerServer.PORT);
+            } catch (IOException e) {
+                System.err.println("Could not start the server: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
         while (true) {
             System.out.println("\n== Ledger System ==");
             System.out.println("Login or Register:");
@@ -88,38 +128,35 @@ public class Main {
 
         if (db.userExists(email)) {
             System.out.println("Email already registered!\n");
-        } else {
-            db.insertUser(name, email, password);
+        } else if (db.insertUser(name, email, password)) {
             System.out.println("\nRegister Successful!!!\n");
         }
     }
 
     // Name must be alphanumeric only
-    private static boolean isValidName(String name) {
+    static boolean isValidName(String name) {
         return name.matches("^[a-zA-Z0-9]+$");
     }
 
-    private static boolean isValidPassword(String password) {
+    static boolean isValidPassword(String password) {
         return password.matches("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[^A-Za-z0-9]).{8,}$");
     }
 
-    private static boolean isValidEmail(String email) {
+    static boolean isValidEmail(String email) {
         String regex = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$";
         return Pattern.matches(regex, email);
     }
 
     public static void showUserSummary() {
-        double balance = db.getBalance(currentUserEmail);
-        double savings = db.getSavings(currentUserEmail);
-        double loan = db.getLoanBalance(currentUserEmail);
-        printUserSummary(currentUserEmail, balance, savings, loan);
+        AccountSnapshotCache.AccountSnapshot account = db.getAccountSnapshot(currentUserEmail);
+        printUserSummary(currentUserEmail, account.balance(), account.savings(), account.loanBalance());
     }
 
-    public static void printUserSummary(String name, double balance, double savings, double totalRepayment) {
+    public static void printUserSummary(String name, long balance, long savings, long totalRepayment) {
         System.out.println("\n== Welcome, " + name + " ==");
-        System.out.printf(Locale.US, "Balance: %.2f\n", balance);
-        System.out.printf(Locale.US, "Savings: %.2f\n", savings);
-        System.out.printf(Locale.US, "Loan: %.2f\n", totalRepayment);
+        System.out.println("Balance: " + Money.format(balance));
+        System.out.println("Savings: " + Money.format(savings));
+        System.out.println("Loan: " + Money.format(totalRepayment));
     }
 
     private static void loginUser() {
@@ -136,17 +173,18 @@ public class Main {
         System.out.print("Password: ");
         String password = scanner.nextLine();
 
-        if (!db.userExists(email)) {
-            System.out.println("Email not registered!\n");
-        } else if (db.validateUser(email, password)) {
-            System.out.println("\nLogin Successful!!!\n");
+        switch (db.login(email, password)) {
+            case OK -> {
+                System.out.println("\nLogin Successful!!!\n");
 
-            currentUserEmail = email;
-            db.checkLoanReminders(email);
+                currentUserEmail = email;
+                DatabaseHandler.checkLoanReminders(email);
 
-            transactionMenu();
-        } else {
-            System.out.println("Incorrect password!\n");
+                transactionMenu();
+            }
+            case UNKNOWN_USER -> System.out.println("Email not registered!\n");
+            case BUSY -> System.out.println("Too many logins at once, please try again.\n");
+            default -> System.out.println("Incorrect password!\n");
         }
     }
 
@@ -176,17 +214,24 @@ public class Main {
                         System.out.println("\n== History Menu ==");
                         System.out.println("1.View Transaction History");
                         System.out.println("2.Filter and Sort");
-                        System.out.println("3.Export to CSV");
-                        System.out.println("4.Back");
+                        System.out.println("3.Search");
+                        System.out.println("4.Export to CSV");
+                        System.out.println("5.Import from CSV");
+                        System.out.println("6.Back");
                         System.out.print("> ");
                         int historyChoice = scanner.nextInt();
                         scanner.nextLine();
 
                         switch (historyChoice) {
-                            case 1 -> db.showHistory(currentUserEmail);
+                            case 1 -> {
+                                System.out.println("\n== Transaction History ==");
+                                browseHistory(currentUserEmail, TransactionHistory.Filter.none());
+                            }
                             case 2 -> filterHistory(currentUserEmail);
-                            case 3 -> db.exportToCSV(currentUserEmail);
-                            case 4 -> transactionMenu();
+                            case 3 -> searchHistory(currentUserEmail);
+                            case 4 -> exportHistory();
+                            case 5 -> importFromCSV();
+                            case 6 -> transactionMenu();
                             default -> System.out.println("Invalid.");
                         }
                     }
@@ -195,8 +240,8 @@ public class Main {
                     case 6 -> depositInterestPredictor();
                     case 7 -> db.exportVisualizationData();
                     case 8 -> {
+                        // the connection pool is shared by every session, so logout only ends this one
                         System.out.println("Logging out...");
-                        db.disconnectDatabase();
                         return;
                     }
                     default -> System.out.println("Invalid choice.");
@@ -213,11 +258,8 @@ public class Main {
     }
 
     public static void handleCredit(Scanner input) {
-        double balance = db.getBalance(currentUserEmail);
-
-        // Check if blocked first
-        int userId = db.getUserId(currentUserEmail);
-        if (db.isBlocked(userId)) {
+        // Check if blocked first; an in-memory lookup, so no query before the user types anything
+        if (db.isBlocked(currentUserEmail)) {
             System.out.println("Cannot perform transactions - you have overdue loans!");
             return;
         }
@@ -225,35 +267,32 @@ public class Main {
         System.out.println();
         System.out.println("==Credit==");
         System.out.print("Enter credit Amount: ");
-        double amount = input.nextDouble();
+        long amount = Money.parse(input.next());
         input.nextLine();
         System.out.print("Enter description: ");
         String desc = input.nextLine();
 
-        if (amount <= 0 || amount > 1000000 || desc.length() > 100) {
-            System.out.println("Invalid input.");
+        long balance = db.getBalance(currentUserEmail);
+        String error = PostingRules.checkCredit(amount, desc, balance);
+        if (error != null) {
+            System.out.println(error);
             return;
         }
 
-        if (amount > balance) {
-            System.out.println("Insufficient balance for this debit.");
+        balance -= amount;
+        if (!DatabaseHandler.saveTransaction("Credit", amount, desc, currentUserEmail)) {
+            System.out.println("Credit could not be recorded, please try again.");
             return;
         }
 
-        balance -= amount;
-        db.saveTransaction("Credit", amount, desc, currentUserEmail);
-
         // Process savings deduction
         db.processSavingsOnDebit(currentUserEmail, amount);
-        System.out.println("Credit successfully recorded! Current balance: " + balance);
+        System.out.println("Credit successfully recorded! Current balance: " + Money.format(balance));
     }
 
     public static void handleDebit(Scanner input) {
-        double balance = db.getBalance(currentUserEmail);
-
-        // Check if blocked first
-        int userId = db.getUserId(currentUserEmail);
-        if (db.isBlocked(userId)) {
+        // Check if blocked first; an in-memory lookup, so no query before the user types anything
+        if (db.isBlocked(currentUserEmail)) {
             System.out.println("Cannot perform transactions - you have overdue loans!");
             return;
         }
@@ -261,19 +300,65 @@ public class Main {
         System.out.println();
         System.out.println("==Debit==");
         System.out.print("Enter Debit Amount: ");
-        double amount = input.nextDouble();
+        long amount = Money.parse(input.next());
         input.nextLine();
         System.out.print("Enter description: ");
         String desc = input.nextLine();
 
-        if (amount <= 0 || desc.length() > 100) {
-            System.out.println("Invalid input.");
+        String error = PostingRules.checkDebit(amount, desc);
+        if (error != null) {
+            System.out.println(error);
+            return;
+        }
+
+        if (!DatabaseHandler.saveTransaction("Debit", amount, desc, currentUserEmail)) {
+            System.out.println("Debit could not be recorded, please try again.");
+            return;
+        }
+        long balance = db.getBalance(currentUserEmail);
+        System.out.println("Debit successfully recorded! Current balance: " + Money.format(balance));
+    }
+
+    private static void exportHistory() {
+        System.out.print("Output file (blank for transaction_history.csv): ");
+        String path = scanner.nextLine().trim();
+        if (path.isEmpty()) {
+            path = "transaction_history.csv";
+        }
+
+        String startDate = null;
+        String endDate = null;
+        System.out.print("Limit to a date range? (Y/N): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("Y")) {
+            System.out.print("Start date (YYYY-MM-DD): ");
+            startDate = scanner.nextLine().trim();
+            System.out.print("End date (YYYY-MM-DD): ");
+            endDate = scanner.nextLine().trim();
+        }
+
+        System.out.print("Compress with gzip? (Y/N): ");
+        boolean gzip = scanner.nextLine().trim().equalsIgnoreCase("Y");
+        if (gzip && !path.endsWith(".gz")) {
+            path += ".gz";
+        }
+
+        DatabaseHandler.exportToCSV(currentUserEmail, Path.of(path), startDate, endDate, gzip);
+    }
+
+    private static void importFromCSV() {
+        // an import posts debits and credits, so it is held to the same overdue-loan guard
+        if (db.isBlocked(currentUserEmail)) {
+            System.out.println("Cannot perform transactions - you have overdue loans!");
             return;
         }
 
-        balance += amount;
-        db.saveTransaction("Debit", amount, desc, currentUserEmail);
-        System.out.println("Debit successfully recorded! Current balance: " + balance);
+        System.out.print("Path of the CSV file to import: ");
+        String path = scanner.nextLine().trim();
+        if (path.isEmpty()) {
+            System.out.println("Invalid path.");
+            return;
+        }
+        TransactionImporter.importCsv(Path.of(path), currentUserEmail);
     }
 
     private static void setupSavings() {
@@ -382,72 +467,113 @@ public class Main {
     }
 
     public static void filterHistory(String currentUserEmail) throws SQLException {
-        StringBuilder query = new StringBuilder("SELECT * FROM transactions WHERE user_email = ?");
-        List<Object> parameters = new ArrayList<>();
-        parameters.add(currentUserEmail);
+        TransactionHistory.Filter filter = readFilter(true);
+        if (filter != null) {
+            browseHistory(currentUserEmail, filter);
+        }
+    }
+
+    // search terms first, then the same optional filters as filterHistory
+    public static void searchHistory(String currentUserEmail) throws SQLException {
+        System.out.print("\nSearch descriptions (words, prefix*, \"exact phrase\"): ");
+        String text = scanner.nextLine().trim();
+        System.out.print("Narrow with filters? (Y/N): ");
+        TransactionHistory.Filter filter = scanner.nextLine().trim().equalsIgnoreCase("Y")
+                ? readFilter(false) : TransactionHistory.Filter.none();
+        if (filter == null) {
+            return;
+        }
+        try {
+            List<TransactionHistory.Row> rows = TransactionSearch.search(currentUserEmail, text, filter,
+                    TransactionSearch.DEFAULT_LIMIT);
+            System.out.print(TransactionHistory.render(new TransactionHistory.Page(rows, null, null)));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    // prompts for each filter in turn; null if an answer was invalid
+    private static TransactionHistory.Filter readFilter(boolean withSorting) {
+        String startDate = null;
+        String endDate = null;
+        String type = null;
+        Long min = null;
+        Long max = null;
+        Integer categoryId = null;
+        boolean sortByAmount = false;
+        boolean ascending = false;
 
         // Date range filter
         System.out.print("\nFilter by date range? (Y/N): ");
         if (scanner.nextLine().trim().equalsIgnoreCase("Y")) {
             System.out.print("Start date (YYYY-MM-DD): ");
-            String startDate = scanner.nextLine().trim();
+            startDate = scanner.nextLine().trim();
             System.out.print("End date (YYYY-MM-DD): ");
-            String endDate = scanner.nextLine().trim();
-            query.append(" AND DATE(timestamp) BETWEEN ? AND ?");
-            parameters.add(startDate);
-            parameters.add(endDate);
+            endDate = scanner.nextLine().trim();
         }
 
         // Transaction type
         System.out.print("Filter by transaction type (Debit/Credit)? (Y/N): ");
         if (scanner.nextLine().trim().equalsIgnoreCase("Y")) {
             System.out.print("Enter type (Debit/Credit): ");
-            String type = scanner.nextLine().trim();
-            query.append(" AND LOWER(type) = LOWER(?)");
-            parameters.add(type);
+            type = scanner.nextLine().trim();
         }
 
         // Amount range
         System.out.print("Filter by amount range? (Y/N): ");
         if (scanner.nextLine().trim().equalsIgnoreCase("Y")) {
             System.out.print("Minimum amount: ");
-            double min = Double.parseDouble(scanner.nextLine().trim());
+            min = Money.parse(scanner.nextLine().trim());
             System.out.print("Maximum amount: ");
-            double max = Double.parseDouble(scanner.nextLine().trim());
-            query.append(" AND amount BETWEEN ? AND ?");
-            parameters.add(min);
-            parameters.add(max);
+            max = Money.parse(scanner.nextLine().trim());
         }
 
-        // Sorting
-        System.out.print("Sort results? (Y/N): ");
+        // Category
+        System.out.print("Filter by category? (Y/N): ");
         if (scanner.nextLine().trim().equalsIgnoreCase("Y")) {
+            System.out.print("Enter category (e.g. Food, Housing, Transport, Other): ");
+            categoryId = Categorizer.current().idOf(scanner.nextLine().trim());
+            if (categoryId == null) {
+                System.out.println("Unknown category.");
+                return null;
+            }
+        }
+
+        // Sorting
+        if (withSorting) {
+            System.out.print("Sort results? (Y/N): ");
+        }
+        if (withSorting && scanner.nextLine().trim().equalsIgnoreCase("Y")) {
             System.out.print("Sort by (date/amount): ");
-            String field = scanner.nextLine().trim().toLowerCase();
+            sortByAmount = scanner.nextLine().trim().equalsIgnoreCase("amount");
             System.out.print("Order (asc/desc): ");
-            String order = scanner.nextLine().trim().toUpperCase();
-            if (field.equals("date")) {
-                query.append(" ORDER BY timestamp ").append(order);
-            } else if (field.equals("amount")) {
-                query.append(" ORDER BY amount ").append(order);
-            }
+            ascending = scanner.nextLine().trim().equalsIgnoreCase("asc");
         }
 
-        try (PreparedStatement pstmt = db.getConnection().prepareStatement(query.toString())) {
-            for (int i = 0; i < parameters.size(); i++) {
-                pstmt.setObject(i + 1, parameters.get(i));
-            }
+        return new TransactionHistory.Filter(startDate, endDate, type, min, max, categoryId, sortByAmount, ascending);
+    }
+
+    // shows one page at a time and seeks to the neighbouring page on request
+    private static void browseHistory(String email, TransactionHistory.Filter filter) {
+        int pageSize = TransactionHistory.DEFAULT_PAGE_SIZE;
+        try {
+            TransactionHistory.Page page = TransactionHistory.firstPage(email, filter, pageSize);
+            while (true) {
+                System.out.print(TransactionHistory.render(page));
+                if (page.next() == null && page.previous() == null) {
+                    return;
+                }
 
-            try (ResultSet rs = pstmt.executeQuery()) {
-                System.out.println("\nID | Type   | Amount       | Description          | Date");
-                System.out.println("------------------------------------------------------------");
-                while (rs.next()) {
-                    System.out.printf(Locale.US, "%-2d | %-6s | %12.2f | %-20s | %s%n",
-                            rs.getInt("id"),
-                            rs.getString("type"),
-                            rs.getDouble("amount"),
-                            rs.getString("description"),
-                            rs.getString("timestamp"));
+                System.out.print("[N]ext, [P]revious, [Q]uit: ");
+                String choice = scanner.nextLine().trim().toUpperCase();
+                if (choice.equals("N") && page.next() != null) {
+                    page = TransactionHistory.nextPage(email, filter, pageSize, page.next());
+                } else if (choice.equals("P") && page.previous() != null) {
+                    page = TransactionHistory.previousPage(email, filter, pageSize, page.previous());
+                } else if (choice.equals("Q")) {
+                    return;
+                } else {
+                    System.out.println("No page in that direction.");
                 }
             }
         } catch (Exception e) {
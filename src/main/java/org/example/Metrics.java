@@ -0,0 +1,118 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Formatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of per-operation metrics for the data layer.
+ *
+ * Each operation is registered once under a stable dotted name ({@code balance.read},
+ * {@code txn.insert}, ...) and published as an MXBean at
+ * {@code org.example:type=DatabaseOperation,name=<operation>}. When
+ * {@code ledger.metrics.dumpSeconds} is positive, a daemon thread also appends a
+ * text table of every operation to {@code ledger.metrics.dumpFile}.
+ */
+public final class Metrics {
+    private static final long DUMP_SECONDS = Long.getLong("ledger.metrics.dumpSeconds", 0);
+    private static final Path DUMP_FILE = Path.of(System.getProperty("ledger.metrics.dumpFile", "ledger-metrics.log"));
+
+    private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {
+    }
+
+    /** Returns the metrics for {@code name}, registering them (and their MXBean) on first use. */
+    public static OperationMetrics operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, Metrics::register);
+    }
+
+    private static OperationMetrics register(String name) {
+        OperationMetrics metrics = new OperationMetrics(name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("org.example:type=DatabaseOperation,name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metrics, objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Error registering metrics for " + name + ": " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    public static synchronized void startReporter() {
+        if (DUMP_SECONDS <= 0 || reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ledger-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(Metrics::appendDump, DUMP_SECONDS, DUMP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+            appendDump();
+        }
+    }
+
+    private static void appendDump() {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(DUMP_FILE, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            out.println("== " + LocalDateTime.now() + " ==");
+            out.print(dump());
+        } catch (IOException e) {
+            System.err.println("Error writing metrics dump: " + e.getMessage());
+        }
+    }
+
+    /** SQLITE_BUSY / SQLITE_LOCKED failures summed over every operation. */
+    public static long busyErrors() {
+        long total = 0;
+        for (OperationMetrics m : OPERATIONS.values()) {
+            total += m.getBusyErrors();
+        }
+        return total;
+    }
+
+    /** Text table of every operation that has been called at least once, sorted by name. */
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        try (Formatter formatter = new Formatter(out, Locale.US)) {
+            formatter.format("%-22s %10s %8s %6s %10s %10s %10s %10s%n",
+                    "operation", "calls", "errors", "busy", "mean(us)", "p50(us)", "p99(us)", "max(us)");
+            for (OperationMetrics m : new TreeMap<>(OPERATIONS).values()) {
+                if (m.getCalls() == 0 && m.getErrors() == 0) {
+                    continue;
+                }
+                formatter.format("%-22s %10d %8d %6d %10.1f %10.1f %10.1f %10.1f%n",
+                        m.getName(), m.getCalls(), m.getErrors(), m.getBusyErrors(),
+                        m.getMeanMicros(), m.getP50Micros(), m.getP99Micros(), m.getMaxMicros());
+            }
+        }
+        return out.toString();
+    }
+}
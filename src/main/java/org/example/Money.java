@@ -0,0 +1,94 @@
+package org.example;
+
+/**
+ * Amounts as {@code long} minor units (cents).
+ *
+ * Every money column is an INTEGER holding cents and every amount passed through
+ * {@link DatabaseHandler} is a primitive long, so sums and comparisons are exact and a
+ * balance never drifts by a fraction of a cent. Decimal text is only produced or read at
+ * the edges: user input, CSV files and printed output.
+ */
+public final class Money {
+    public static final long MINOR_PER_MAJOR = 100;
+
+    private Money() {
+    }
+
+    /** Cents for a major-unit amount, rounded half away from zero. */
+    public static long ofMajor(double major) {
+        return Math.round(Math.abs(major) * MINOR_PER_MAJOR) * (major < 0 ? -1 : 1);
+    }
+
+    public static double toMajor(long minor) {
+        return minor / (double) MINOR_PER_MAJOR;
+    }
+
+    /**
+     * Parses decimal text such as {@code 12}, {@code -3.5} or {@code 1234.56} exactly,
+     * without going through a double. Digits past the cents are rounded half up.
+     */
+    public static long parse(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+
+        long units = 0;
+        int digits = 0;
+        for (; i < length && text.charAt(i) != '.'; i++) {
+            units = Math.addExact(Math.multiplyExact(units, 10), digit(text, i));
+            digits++;
+        }
+        long cents = 0;
+        if (i < length) {
+            i++; // the decimal point
+            int scale = 0;
+            for (; i < length; i++, scale++) {
+                int d = digit(text, i);
+                digits++;
+                if (scale < 2) {
+                    cents = cents * 10 + d;
+                } else if (scale == 2 && d >= 5) {
+                    cents++;
+                }
+            }
+            for (; scale < 2; scale++) {
+                cents *= 10;
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Not an amount: \"" + text + "\"");
+        }
+        long minor = Math.addExact(Math.multiplyExact(units, MINOR_PER_MAJOR), cents);
+        return negative ? -minor : minor;
+    }
+
+    private static int digit(CharSequence text, int index) {
+        char c = text.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Not an amount: \"" + text + "\"");
+        }
+        return c - '0';
+    }
+
+    /** {@code minor} as plain decimal text with two places, e.g. {@code -12.05}. */
+    public static String format(long minor) {
+        return appendTo(new StringBuilder(24), minor).toString();
+    }
+
+    public static StringBuilder appendTo(StringBuilder out, long minor) {
+        if (minor < 0) {
+            out.append('-');
+        }
+        long abs = Math.abs(minor);
+        long cents = abs % MINOR_PER_MAJOR;
+        out.append(abs / MINOR_PER_MAJOR).append('.');
+        if (cents < 10) {
+            out.append('0');
+        }
+        return out.append(cents);
+    }
+}
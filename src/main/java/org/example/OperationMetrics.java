@@ -0,0 +1,155 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count and latency histogram for one named operation.
+ *
+ * Latencies go into fixed log-linear buckets (eight per power of two, so any reported
+ * percentile is within about 12% of the true value) held in an AtomicLongArray.
+ * Recording is a couple of atomic adds with no locking or allocation, which keeps it
+ * cheap enough to leave on in production.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+    private static final int SUB_BUCKETS = 8;
+    private static final int LINEAR_LIMIT = 16;
+    private static final int BUCKETS = LINEAR_LIMIT + (64 - 4) * SUB_BUCKETS;
+
+    // SQLite result codes that mean another connection held the lock
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder busyErrors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /** Starts timing one call; closing the timer records its latency. */
+    public Timer time() {
+        return new Timer(this, System.nanoTime());
+    }
+
+    public void record(long latencyNanos) {
+        calls.increment();
+        totalNanos.add(latencyNanos);
+        maxNanos.accumulate(latencyNanos);
+        histogram.incrementAndGet(bucket(latencyNanos));
+    }
+
+    public void error(Exception e) {
+        errors.increment();
+        if (e instanceof SQLException sql && isBusy(sql)) {
+            busyErrors.increment();
+        }
+    }
+
+    static boolean isBusy(SQLException e) {
+        int code = e.getErrorCode() & 0xff; // extended result codes keep the primary code in the low byte
+        return code == SQLITE_BUSY || code == SQLITE_LOCKED;
+    }
+
+    /** Latency in nanoseconds at or below which {@code quantile} of the calls completed. */
+    public long percentileNanos(double quantile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= target) {
+                return Math.min(upperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < LINEAR_LIMIT) {
+            return (int) Math.max(nanos, 0);
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) ((nanos >>> (msb - 3)) & (SUB_BUCKETS - 1));
+        return LINEAR_LIMIT + (msb - 4) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int msb = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (msb - 3)) - 1;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getBusyErrors() {
+        return busyErrors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long count = calls.sum();
+        return count == 0 ? 0 : totalNanos.sum() / 1e3 / count;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentileNanos(0.50) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentileNanos(0.99) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return maxNanos.get() / 1e3;
+    }
+
+    public static final class Timer implements AutoCloseable {
+        private final OperationMetrics metrics;
+        private final long start;
+
+        private Timer(OperationMetrics metrics, long start) {
+            this.metrics = metrics;
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+}
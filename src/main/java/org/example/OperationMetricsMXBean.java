@@ -0,0 +1,20 @@
+package org.example;
+
+/** JMX view of one data-layer operation's counters and latency percentiles. */
+public interface OperationMetricsMXBean {
+    String getName();
+
+    long getCalls();
+
+    long getErrors();
+
+    long getBusyErrors();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+}
@@ -0,0 +1,552 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, checksummed replay log of the operations that change a balance, enabled with
+ * {@code ledger.journal.path} and opened by {@link DatabaseHandler#openJournal}.
+ *
+ * It is not the system of record: SQLite is still written synchronously and stays the store
+ * every read and balance check uses. The log adds a commit-ordered history and recovery by
+ * replay, at the price of one extra append and journal_state update per write, so it is off
+ * by default.
+ *
+ * saveTransaction, a group commit, repayLoan, applyLoan, registration, savings activation and
+ * accrual, each savings sweep chunk and each CSV import chunk append one entry describing the
+ * whole operation while they hold the writer, just before their SQLite commit, and store
+ * the entry's end offset in {@code journal_state} in that same transaction. The journal is
+ * therefore in commit order, and the stored offset says exactly how much of it the tables
+ * reflect. When it is opened {@link #replay} re-executes every entry past that offset, so a database
+ * that crashed between append and commit, or one restored from a backup, catches up from the
+ * journal.
+ *
+ * The file is written through memory-mapped segments: an append is a sequential copy into the
+ * page cache, which survives a process crash. A background thread forces new bytes to disk
+ * every {@code ledger.journal.forceMs}; with 0 each append is forced before its commit. An OS
+ * crash can lose the unforced tail, which recovery reports before carrying on from the end.
+ *
+ * Layout: a header (MAGIC, journal id, segment size), then entries of
+ * {@code [int length][int CRC32C][payload]}, each followed by a zero length marking the end.
+ * An entry never spans segments; a length of -1 says the rest of the segment is unused.
+ */
+public class PostingJournal implements AutoCloseable {
+    static final byte[] MAGIC = "LDGRJRN1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_BYTES = MAGIC.length + 8 + 8;
+    private static final int SKIP = -1;
+    private static final long SEGMENT_BYTES = Long.getLong("ledger.journal.segmentBytes", 64L << 20);
+    private static final long FORCE_MS = Long.getLong("ledger.journal.forceMs", 50);
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+
+    private static final OperationMetrics JOURNAL_APPEND = Metrics.operation("journal.append");
+    private static final OperationMetrics JOURNAL_FORCE = Metrics.operation("journal.force");
+
+    private static final String MARK_APPLIED_SQL = "INSERT INTO journal_state (id, journal_id, applied_offset) " +
+            "VALUES (1, ?, ?) ON CONFLICT (id) DO UPDATE SET journal_id = excluded.journal_id, " +
+            "applied_offset = excluded.applied_offset";
+
+    /** A journaled operation. Replay re-executes it, which must produce an equal entry. */
+    sealed interface Entry permits Postings, Repayment, LoanOpened, UserRegistered, SavingsActivated,
+            SavingsAccrued, SweepChunk, Imported {
+        // UTC, in SQLite's CURRENT_TIMESTAMP format; replay stamps the postings with it
+        String timestamp();
+    }
+
+    record Posting(String type, long amount, String description, String email) {
+    }
+
+    record Postings(String timestamp, List<Posting> postings) implements Entry {
+    }
+
+    record Repayment(String timestamp, String email, int loanId, long amount) implements Entry {
+    }
+
+    record LoanOpened(String timestamp, String email, long principal, double interestRate, int period,
+                      String method, String start) implements Entry {
+    }
+
+    // the bcrypt hash, so that replay does not hash again
+    record UserRegistered(String timestamp, String name, String email, String passwordHash) implements Entry {
+    }
+
+    record SavingsActivated(String timestamp, String email, int percentage) implements Entry {
+    }
+
+    // the debit the savings share was taken from; replay applies the percentage stored at the time
+    record SavingsAccrued(String timestamp, String email, long debitAmount) implements Entry {
+    }
+
+    // savings ids (afterId, upToId] of the month's sweep, posted and zeroed in one transaction
+    record SweepChunk(String timestamp, String period, long afterId, long upToId) implements Entry {
+    }
+
+    record ImportedPosting(String timestamp, String type, long amount, String description) {
+    }
+
+    // the rows of one import chunk that passed the checks, each with the timestamp it was stored with
+    record Imported(String timestamp, String email, List<ImportedPosting> postings) implements Entry {
+    }
+
+    /** Where an appended entry lies, so that it can be discarded if its commit fails. */
+    record Appended(long start, long end) {
+    }
+
+    @FunctionalInterface
+    interface Replayer {
+        void apply(Entry entry) throws SQLException;
+    }
+
+    private record Located(long start, long end, Entry entry) {
+    }
+
+    private final Path path;
+    private final FileChannel file;
+    private final long journalId;
+    private final long segmentBytes;
+    // the segment being appended to; position is only touched with the writer held
+    private volatile MappedByteBuffer segment;
+    private volatile long segmentStart;
+    private long position;
+    private volatile long written;
+    private long forced;
+    private final Thread forcer;
+    private volatile boolean running = true;
+    // the entry being re-executed and where it ends; only set while replay runs, before any other write
+    private Entry replaying;
+    private long replayingEnd;
+
+    private PostingJournal(Path path) throws IOException {
+        this.path = path;
+        file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (file.size() == 0) {
+                journalId = new SecureRandom().nextLong();
+                segmentBytes = SEGMENT_BYTES;
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).put(MAGIC).putLong(journalId).putLong(segmentBytes);
+                file.write(header.flip(), 0);
+                file.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                file.read(header, 0);
+                header.flip();
+                byte[] magic = new byte[MAGIC.length];
+                if (header.remaining() < HEADER_BYTES || !Arrays.equals(magic(header, magic), MAGIC)) {
+                    throw new IOException(path + " is not a ledger journal");
+                }
+                journalId = header.getLong();
+                segmentBytes = header.getLong();
+            }
+
+            // the journal ends before the first entry that is missing, torn or fails its checksum
+            long end = HEADER_BYTES;
+            Located entry;
+            while ((entry = read(end)) != null) {
+                end = entry.end();
+            }
+            position = end;
+            written = end;
+            forced = end;
+            map(end - end % segmentBytes);
+            // cut off whatever a torn append left behind, so the end stays where the scan stopped
+            segment.putInt((int) (end - segmentStart), 0);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+
+        forcer = new Thread(this::forceLoop, "ledger-journal-force");
+        forcer.setDaemon(true);
+        if (FORCE_MS > 0) {
+            forcer.start();
+        }
+    }
+
+    public static PostingJournal open(Path path) throws IOException {
+        return new PostingJournal(path);
+    }
+
+    private static byte[] magic(ByteBuffer header, byte[] magic) {
+        header.get(magic);
+        return magic;
+    }
+
+    /** The timestamp for a new posting: now, or the original one while an entry is replayed. */
+    String timestamp() {
+        return replaying != null ? replaying.timestamp() : TIMESTAMP.format(Instant.now());
+    }
+
+    /**
+     * Appends an entry and records its end in journal_state. The caller holds the writer with
+     * a transaction open and must commit next, or roll back and {@link #discard} the entry.
+     * During replay nothing is appended; the entry must equal the one being replayed.
+     */
+    @SuppressWarnings("try")
+    Appended append(ConnectionPool.Lease lease, Entry entry) throws SQLException {
+        if (replaying != null) {
+            if (!entry.equals(replaying)) {
+                throw new SQLException("Journal replay diverged: expected " + replaying + " but got " + entry);
+            }
+            markApplied(lease, replayingEnd);
+            return null;
+        }
+        try (OperationMetrics.Timer timer = JOURNAL_APPEND.time()) {
+            byte[] payload = encode(entry);
+            int size = 8 + payload.length;
+            if (HEADER_BYTES + size + 4 > segmentBytes) {
+                throw new SQLException("Journal entry of " + size + " bytes does not fit in a segment");
+            }
+            long start = position;
+            long at = position;
+            if (at + size + 4 > segmentStart + segmentBytes) {
+                at = segmentStart + segmentBytes;
+            }
+            // recorded first: if this fails the caller rolls back with nothing written
+            markApplied(lease, at + size);
+
+            if (at != start) {
+                segment.putInt((int) (start - segmentStart), SKIP);
+                map(at);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            int index = (int) (at - segmentStart);
+            segment.putInt(index + size, 0);
+            segment.put(index + 8, payload);
+            segment.putInt(index + 4, (int) crc.getValue());
+            segment.putInt(index, payload.length);
+            position = at + size;
+            written = position;
+            if (FORCE_MS == 0) {
+                force();
+            }
+            return new Appended(start, position);
+        } catch (IOException e) {
+            JOURNAL_APPEND.error(e);
+            throw new SQLException("Error appending to the journal: " + e.getMessage(), e);
+        }
+    }
+
+    /** Takes back the entry of a transaction that rolled back; the writer must still be held. */
+    void discard(Appended appended) {
+        if (appended == null) {
+            return;
+        }
+        // a skip marker left in the previous segment is harmless: the next entry starts this one
+        long from = Math.max(appended.start(), segmentStart);
+        int index = (int) (from - segmentStart);
+        segment.put(index, new byte[(int) (appended.end() - from) + 4], 0, (int) (appended.end() - from) + 4);
+        position = from;
+        written = from;
+        synchronized (this) {
+            if (forced > from) {
+                forced = from;
+                segment.force(index, (int) (appended.end() - from) + 4);
+            }
+        }
+    }
+
+    private void markApplied(ConnectionPool.Lease lease, long offset) throws SQLException {
+        PreparedStatement ps = lease.prepare(MARK_APPLIED_SQL);
+        ps.setLong(1, journalId);
+        ps.setLong(2, offset);
+        ps.executeUpdate();
+    }
+
+    /**
+     * Re-executes every entry the database has not applied yet; call it once at startup,
+     * before any other write. Returns the number of entries replayed.
+     */
+    int replay(ConnectionPool pool, Replayer replayer) throws SQLException, IOException {
+        Long applied = appliedOffset(pool);
+        long offset = applied == null ? HEADER_BYTES : applied;
+        if (offset > position) {
+            System.err.println("Warning: " + path + " ends at offset " + position + " but the database applied it up to "
+                    + offset + "; its unforced tail was lost. New entries continue from the end of the journal.");
+            try (ConnectionPool.Lease lease = pool.writer()) {
+                markApplied(lease, position);
+            }
+            return 0;
+        }
+
+        int replayed = 0;
+        while (offset < position) {
+            Located entry = read(offset);
+            if (entry == null) {
+                break;
+            }
+            replaying = entry.entry();
+            replayingEnd = entry.end();
+            try {
+                replayer.apply(entry.entry());
+            } finally {
+                replaying = null;
+            }
+            // the operation reports its own errors, so check that its commit actually landed
+            Long now = appliedOffset(pool);
+            if (now == null || now != entry.end()) {
+                throw new SQLException("Journal entry at offset " + entry.start() + " could not be replayed: "
+                        + entry.entry());
+            }
+            offset = entry.end();
+            replayed++;
+        }
+        if (replayed > 0) {
+            System.out.println("Replayed " + replayed + " journal entries from " + path + ".");
+        }
+        return replayed;
+    }
+
+    private Long appliedOffset(ConnectionPool pool) throws SQLException, IOException {
+        try (ConnectionPool.Lease lease = pool.reader();
+             Statement stmt = lease.connection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT journal_id, applied_offset FROM journal_state WHERE id = 1")) {
+            if (!rs.next()) {
+                return null;
+            }
+            if (rs.getLong(1) != journalId) {
+                throw new IOException(path + " is not the journal this database was written with");
+            }
+            return rs.getLong(2);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        synchronized (this) {
+            if (segment != null && forced < written) {
+                segment.force();
+                forced = written;
+            }
+            segment = file.map(FileChannel.MapMode.READ_WRITE, start, segmentBytes);
+            segmentStart = start;
+        }
+    }
+
+    @SuppressWarnings("try")
+    private synchronized void force() {
+        long end = written;
+        if (end <= forced) {
+            return;
+        }
+        try (OperationMetrics.Timer timer = JOURNAL_FORCE.time()) {
+            long from = Math.max(forced, segmentStart);
+            segment.force((int) (from - segmentStart), (int) (end - from));
+            forced = end;
+        } catch (RuntimeException e) {
+            JOURNAL_FORCE.error(e);
+            System.err.println("Error forcing " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void forceLoop() {
+        while (running) {
+            try {
+                Thread.sleep(FORCE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            force();
+        }
+    }
+
+    // the entry at offset, after any skip marker, or null where the journal ends
+    private Located read(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while (true) {
+            long segmentEnd = offset - offset % segmentBytes + segmentBytes;
+            length.clear();
+            if (file.read(length, offset) < 4) {
+                return null;
+            }
+            int size = length.flip().getInt();
+            if (size == SKIP) {
+                offset = segmentEnd;
+                continue;
+            }
+            if (size <= 0 || offset + 8 + size + 4 > segmentEnd) {
+                return null;
+            }
+            ByteBuffer entry = ByteBuffer.allocate(4 + size);
+            while (entry.hasRemaining()) {
+                if (file.read(entry, offset + 4 + entry.position()) < 0) {
+                    return null;
+                }
+            }
+            entry.flip();
+            int checksum = entry.getInt();
+            CRC32C crc = new CRC32C();
+            crc.update(entry.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            try {
+                return new Located(offset, offset + 8 + size, decode(entry));
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException(path + " has an unreadable entry at offset " + offset, e);
+            }
+        }
+    }
+
+    private static byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        switch (entry) {
+            case Postings postings -> {
+                out.writeByte(1);
+                writeString(out, postings.timestamp());
+                out.writeInt(postings.postings().size());
+                for (Posting posting : postings.postings()) {
+                    writeString(out, posting.type());
+                    out.writeLong(posting.amount());
+                    writeString(out, posting.description());
+                    writeString(out, posting.email());
+                }
+            }
+            case Repayment repayment -> {
+                out.writeByte(2);
+                writeString(out, repayment.timestamp());
+                writeString(out, repayment.email());
+                out.writeInt(repayment.loanId());
+                out.writeLong(repayment.amount());
+            }
+            case LoanOpened loan -> {
+                out.writeByte(3);
+                writeString(out, loan.timestamp());
+                writeString(out, loan.email());
+                out.writeLong(loan.principal());
+                out.writeDouble(loan.interestRate());
+                out.writeInt(loan.period());
+                writeString(out, loan.method());
+                writeString(out, loan.start());
+            }
+            case UserRegistered user -> {
+                out.writeByte(4);
+                writeString(out, user.timestamp());
+                writeString(out, user.name());
+                writeString(out, user.email());
+                writeString(out, user.passwordHash());
+            }
+            case SavingsActivated savings -> {
+                out.writeByte(5);
+                writeString(out, savings.timestamp());
+                writeString(out, savings.email());
+                out.writeInt(savings.percentage());
+            }
+            case SavingsAccrued savings -> {
+                out.writeByte(6);
+                writeString(out, savings.timestamp());
+                writeString(out, savings.email());
+                out.writeLong(savings.debitAmount());
+            }
+            case SweepChunk chunk -> {
+                out.writeByte(7);
+                writeString(out, chunk.timestamp());
+                writeString(out, chunk.period());
+                out.writeLong(chunk.afterId());
+                out.writeLong(chunk.upToId());
+            }
+            case Imported imported -> {
+                out.writeByte(8);
+                writeString(out, imported.timestamp());
+                writeString(out, imported.email());
+                out.writeInt(imported.postings().size());
+                for (ImportedPosting posting : imported.postings()) {
+                    writeString(out, posting.timestamp());
+                    writeString(out, posting.type());
+                    out.writeLong(posting.amount());
+                    writeString(out, posting.description());
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(ByteBuffer in) {
+        byte kind = in.get();
+        String timestamp = readString(in);
+        return switch (kind) {
+            case 1 -> {
+                int count = in.getInt();
+                List<Posting> postings = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    postings.add(new Posting(readString(in), in.getLong(), readString(in), readString(in)));
+                }
+                yield new Postings(timestamp, postings);
+            }
+            case 2 -> new Repayment(timestamp, readString(in), in.getInt(), in.getLong());
+            case 3 -> new LoanOpened(timestamp, readString(in), in.getLong(), in.getDouble(), in.getInt(),
+                    readString(in), readString(in));
+            case 4 -> new UserRegistered(timestamp, readString(in), readString(in), readString(in));
+            case 5 -> new SavingsActivated(timestamp, readString(in), in.getInt());
+            case 6 -> new SavingsAccrued(timestamp, readString(in), in.getLong());
+            case 7 -> new SweepChunk(timestamp, readString(in), in.getLong(), in.getLong());
+            case 8 -> {
+                String email = readString(in);
+                int count = in.getInt();
+                List<ImportedPosting> postings = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    postings.add(new ImportedPosting(readString(in), readString(in), in.getLong(), readString(in)));
+                }
+                yield new Imported(timestamp, email, postings);
+            }
+            default -> throw new IllegalArgumentException("unknown entry kind " + kind);
+        };
+    }
+
+    // length-prefixed UTF-8; -1 for null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /** Stops the force thread and forces everything appended so far. */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        forcer.interrupt();
+        try {
+            forcer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        force();
+        file.close();
+    }
+}
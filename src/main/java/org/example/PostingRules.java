@@ -0,0 +1,32 @@
+package org.example;
+
+/**
+ * Validation shared by the interactive Debit/Credit screens and the bulk importer,
+ * so a posting accepted from a file is one the menu would have accepted too.
+ * Each check returns the message to show, or {@code null} when the posting is allowed.
+ * Amounts are in minor units (see {@link Money}).
+ */
+public final class PostingRules {
+    public static final int MAX_DESCRIPTION_LENGTH = 100;
+    public static final long MAX_CREDIT_AMOUNT = 1_000_000 * Money.MINOR_PER_MAJOR;
+
+    private PostingRules() {
+    }
+
+    public static String checkDebit(long amount, String description) {
+        if (amount <= 0 || description.length() > MAX_DESCRIPTION_LENGTH) {
+            return "Invalid input.";
+        }
+        return null;
+    }
+
+    public static String checkCredit(long amount, String description, long balance) {
+        if (amount <= 0 || amount > MAX_CREDIT_AMOUNT || description.length() > MAX_DESCRIPTION_LENGTH) {
+            return "Invalid input.";
+        }
+        if (amount > balance) {
+            return "Insufficient balance for this debit.";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package org.example;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput and latency counters for one posting mode (direct or group commit),
+ * so the two can be compared on the same workload.
+ */
+public class PostingStats {
+    private final String mode;
+    private final LongAccumulator firstNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator lastNanos = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    private final LongAdder postings = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    public PostingStats(String mode) {
+        this.mode = mode;
+    }
+
+    /** Records one posting that became durable {@code latencyNanos} after it was requested. */
+    public void recordPosting(long latencyNanos) {
+        long now = System.nanoTime();
+        firstNanos.accumulate(now - latencyNanos);
+        lastNanos.accumulate(now);
+        postings.increment();
+        totalLatencyNanos.add(latencyNanos);
+        maxLatencyNanos.accumulate(latencyNanos);
+    }
+
+    public void recordCommit() {
+        commits.increment();
+    }
+
+    public long postings() {
+        return postings.sum();
+    }
+
+    public long commits() {
+        return commits.sum();
+    }
+
+    public String summary() {
+        long count = postings.sum();
+        long batches = commits.sum();
+        // throughput over the span actually spent posting, not over the whole uptime
+        double seconds = count == 0 ? 0 : (lastNanos.get() - firstNanos.get()) / 1e9;
+        return String.format(Locale.US,
+                "%s: %d postings in %d commits (%.1f per commit), %.1f postings/sec, avg %.3f ms, max %.3f ms",
+                mode, count, batches, batches == 0 ? 0.0 : (double) count / batches,
+                seconds == 0 ? 0.0 : count / seconds,
+                count == 0 ? 0.0 : totalLatencyNanos.sum() / 1e6 / count,
+                maxLatencyNanos.get() / 1e6);
+    }
+}
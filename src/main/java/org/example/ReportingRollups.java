@@ -0,0 +1,129 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Per-user, per-day totals behind the Power BI views (see {@link ReportingViews}).
+ *
+ * {@code daily_rollups} holds one row per day, user, transaction type, spending category
+ * and description flags, with the summed amount in minor units and the number of postings.
+ * Triggers on {@code transactions} keep it current in the same statement as each insert,
+ * update or delete, so a dashboard refresh reads a few rows per day instead of grouping
+ * the whole ledger. The category is the one {@link Categorizer} stored on the posting;
+ * databases before migration 11 matched the description against fixed keywords instead.
+ * {@link #rebuildAll} recomputes the table from scratch.
+ */
+public class ReportingRollups {
+    // bits of the flags column: descriptions vw_savings_growth and vw_loan_repayments pick out
+    static final int SAVINGS = 1;
+    static final int LOAN_REPAYMENT = 2;
+
+    /** Where the category dimension comes from. */
+    enum CategorySource {
+        /** The keyword rules of migration 10, from before transactions had a category_id. */
+        KEYWORDS,
+        /** The category_id Categorizer stored on the posting. */
+        STORED
+    }
+
+    private static final String KEY = "day, user_email, type, category, flags";
+
+    static void createTable(Statement stmt) throws SQLException {
+        // the missing day or user of a legacy row is stored as '' because key columns cannot be null
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS daily_rollups (
+                day TEXT NOT NULL,
+                user_email TEXT NOT NULL,
+                type TEXT NOT NULL,
+                category TEXT NOT NULL,
+                flags INTEGER NOT NULL,
+                amount INTEGER NOT NULL,
+                postings INTEGER NOT NULL,
+                PRIMARY KEY (day, user_email, type, category, flags)
+            ) WITHOUT ROWID;
+            """);
+    }
+
+    /** (Re)creates the triggers; the table contents must be rebuilt to match them. */
+    static void createTriggers(Statement stmt, CategorySource source) throws SQLException {
+        stmt.executeUpdate("DROP TRIGGER IF EXISTS trg_transactions_rollup_insert");
+        stmt.executeUpdate("DROP TRIGGER IF EXISTS trg_transactions_rollup_delete");
+        stmt.executeUpdate("DROP TRIGGER IF EXISTS trg_transactions_rollup_update");
+        stmt.executeUpdate("CREATE TRIGGER trg_transactions_rollup_insert " +
+                "AFTER INSERT ON transactions BEGIN " + add("NEW", source) + " END");
+        stmt.executeUpdate("CREATE TRIGGER trg_transactions_rollup_delete " +
+                "AFTER DELETE ON transactions BEGIN " + remove("OLD", source) + " END");
+        stmt.executeUpdate("CREATE TRIGGER trg_transactions_rollup_update " +
+                "AFTER UPDATE OF type, amount, description, user_email, timestamp" +
+                (source == CategorySource.STORED ? ", category_id" : "") + " ON transactions BEGIN " +
+                remove("OLD", source) + " " + add("NEW", source) + " END");
+    }
+
+    /** Recomputes the table and commits; returns the number of rollup rows. */
+    public static int rebuildAll(ConnectionPool pool) throws SQLException {
+        int rows;
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false);
+            try {
+                rows = rebuild(conn, CategorySource.STORED);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        System.out.println("Daily rollups rebuilt: " + rows + " rows.");
+        return rows;
+    }
+
+    /** Replaces the table contents in the caller's transaction; also used by the schema migration. */
+    static int rebuild(Connection conn, CategorySource source) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM daily_rollups");
+            return stmt.executeUpdate("INSERT INTO daily_rollups (" + KEY + ", amount, postings) " +
+                    "SELECT " + dimensions("transactions", source) + ", SUM(amount), COUNT(*) " +
+                    "FROM transactions GROUP BY 1, 2, 3, 4, 5");
+        }
+    }
+
+    // the key of the posting in row (NEW, OLD or the table itself), in KEY order
+    private static String dimensions(String row, CategorySource source) {
+        return "COALESCE(date(" + row + ".timestamp), ''), " +
+                "COALESCE(" + row + ".user_email, ''), " +
+                row + ".type, " +
+                category(row, source) + ", " +
+                "(" + row + ".description LIKE '%savings%') * " + SAVINGS + " + " +
+                "(" + row + ".description LIKE '%loan repayment%') * " + LOAN_REPAYMENT;
+    }
+
+    private static String category(String row, CategorySource source) {
+        if (source == CategorySource.STORED) {
+            return "COALESCE((SELECT name FROM categories WHERE id = " + row + ".category_id), 'Other')";
+        }
+        return "CASE " +
+                "WHEN " + row + ".description LIKE '%food%' THEN 'Food' " +
+                "WHEN " + row + ".description LIKE '%rent%' THEN 'Housing' " +
+                "WHEN " + row + ".description LIKE '%transport%' THEN 'Transport' " +
+                "ELSE 'Other' END";
+    }
+
+    private static String add(String row, CategorySource source) {
+        return "INSERT INTO daily_rollups (" + KEY + ", amount, postings) " +
+                "VALUES (" + dimensions(row, source) + ", " + row + ".amount, 1) " +
+                "ON CONFLICT (" + KEY + ") DO UPDATE SET " +
+                "amount = amount + excluded.amount, postings = postings + 1;";
+    }
+
+    // subtracts the posting and drops the row once nothing is left in it
+    private static String remove(String row, CategorySource source) {
+        String match = "(" + KEY + ") = (" + dimensions(row, source) + ")";
+        return "UPDATE daily_rollups SET amount = amount - " + row + ".amount, postings = postings - 1 " +
+                "WHERE " + match + "; " +
+                "DELETE FROM daily_rollups WHERE " + match + " AND postings <= 0;";
+    }
+}
@@ -0,0 +1,75 @@
+package org.example;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The views Power BI reads. They aggregate the per-day totals in {@code daily_rollups}
+ * (see {@link ReportingRollups}) rather than the transactions themselves. Amounts are
+ * stored in minor units (see {@link Money}), so each view sums integers exactly and only
+ * converts the total back to major units.
+ */
+final class ReportingViews {
+
+    record View(String name, String select) {
+        String createSql() {
+            return "CREATE VIEW IF NOT EXISTS " + name + " AS " + select;
+        }
+    }
+
+    static final List<View> VIEWS = List.of(
+            new View("vw_spending_trends",
+                    "SELECT NULLIF(day, '') AS day, SUM(amount) / 100.0 AS total, type " +
+                    "FROM daily_rollups WHERE type = 'Debit' " +
+                    "GROUP BY day, type"),
+            new View("vw_savings_growth",
+                    "SELECT NULLIF(day, '') AS day, SUM(amount) / 100.0 AS savings_balance " +
+                    "FROM daily_rollups WHERE flags & " + ReportingRollups.SAVINGS + " " +
+                    "GROUP BY day"),
+            new View("vw_loan_repayments",
+                    "SELECT NULLIF(day, '') AS day, SUM(amount) / 100.0 AS payment " +
+                    "FROM daily_rollups WHERE flags & " + ReportingRollups.LOAN_REPAYMENT + " " +
+                    "GROUP BY day"),
+            new View("vw_spending_categories",
+                    "SELECT category, SUM(amount) / 100.0 AS amount " +
+                    "FROM daily_rollups WHERE type = 'Debit' " +
+                    "GROUP BY category"));
+
+    private ReportingViews() {
+    }
+
+    static View find(String name) {
+        for (View view : VIEWS) {
+            if (view.name().equalsIgnoreCase(name)) {
+                return view;
+            }
+        }
+        return null;
+    }
+
+    static void createAll(Statement stmt) throws SQLException {
+        for (View view : VIEWS) {
+            stmt.execute(view.createSql());
+        }
+    }
+
+    /** Redefines the reporting views that already exist, leaving the others to {@link #createAll}. */
+    static void replaceExisting(Statement stmt) throws SQLException {
+        List<View> existing = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("SELECT name FROM sqlite_master WHERE type = 'view'")) {
+            while (rs.next()) {
+                View view = find(rs.getString(1));
+                if (view != null) {
+                    existing.add(view);
+                }
+            }
+        }
+        for (View view : existing) {
+            stmt.execute("DROP VIEW " + view.name());
+            stmt.execute(view.createSql());
+        }
+    }
+}
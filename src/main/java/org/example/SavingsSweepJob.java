@@ -0,0 +1,207 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.Locale;
+
+/**
+ * Month-end transfer of every savings account back to its owner's balance.
+ *
+ * Accounts are swept in chunks of consecutive savings ids. Each chunk is three set-based
+ * statements (post the transfers with INSERT ... SELECT, zero the swept accounts, advance
+ * the checkpoint) in one short writer transaction, so the writer is free between chunks
+ * and a crash loses at most the uncommitted chunk. The checkpoint row in
+ * {@code savings_sweeps} is keyed by month: rerunning a finished month is a no-op and
+ * rerunning an interrupted one resumes after the last committed chunk, never crediting
+ * an account twice. With the posting journal enabled each chunk is journaled by its id range.
+ */
+public class SavingsSweepJob {
+    public static final int DEFAULT_CHUNK_SIZE = Integer.getInteger("ledger.sweep.chunkSize", 10_000);
+    static final String DESCRIPTION = "Monthly savings transfer";
+
+    private static final OperationMetrics SWEEP_CHUNK = Metrics.operation("savings.sweep.chunk");
+
+    private static final String CHUNK_END_SQL =
+            "SELECT MAX(id) FROM (SELECT id FROM savings WHERE id > ? ORDER BY id LIMIT ?)";
+    private static final String CHUNK_TOTAL_SQL =
+            "SELECT COALESCE(SUM(saved_amount), 0) FROM savings WHERE id > ? AND id <= ? AND saved_amount > 0";
+    private static final String POST_SQL = "INSERT INTO transactions" +
+            "(type, amount, description, user_email, category_id, timestamp) " +
+            "SELECT 'Credit', saved_amount, '" + DESCRIPTION + "', user_email, ?, COALESCE(?, CURRENT_TIMESTAMP) " +
+            "FROM savings WHERE id > ? AND id <= ? AND saved_amount > 0 ORDER BY id";
+    private static final String RESET_SQL =
+            "UPDATE savings SET saved_amount = 0 WHERE id > ? AND id <= ? AND saved_amount > 0";
+    private static final String CHECKPOINT_SQL = "UPDATE savings_sweeps " +
+            "SET last_savings_id = ?, accounts = accounts + ?, amount = amount + ? WHERE period = ?";
+    private static final String OPEN_SQL = "INSERT OR IGNORE INTO savings_sweeps(period) VALUES(?)";
+
+    private record Swept(int accounts, long amount) {
+    }
+
+    /** {@code amount} is in minor units. */
+    public record SweepResult(String period, long accounts, long amount, int chunks, long elapsedNanos,
+                              boolean alreadyComplete) {
+    }
+
+    public static SweepResult run(ConnectionPool pool, YearMonth month) throws SQLException {
+        return run(pool, month, DEFAULT_CHUNK_SIZE);
+    }
+
+    @SuppressWarnings("try")
+    public static SweepResult run(ConnectionPool pool, YearMonth month, int chunkSize) throws SQLException {
+        long start = System.nanoTime();
+        String period = month.toString();
+
+        long lastId;
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            PreparedStatement open = lease.prepare(OPEN_SQL);
+            open.setString(1, period);
+            open.executeUpdate();
+
+            PreparedStatement state = lease.prepare(
+                    "SELECT last_savings_id, completed_at FROM savings_sweeps WHERE period = ?");
+            state.setString(1, period);
+            try (ResultSet rs = state.executeQuery()) {
+                rs.next();
+                if (rs.getString(2) != null) {
+                    return new SweepResult(period, 0, 0, 0, System.nanoTime() - start, true);
+                }
+                lastId = rs.getLong(1);
+            }
+        }
+        if (lastId > 0) {
+            System.out.println("Resuming savings sweep for " + period + " after savings id " + lastId);
+        }
+
+        long accounts = 0;
+        long amount = 0;
+        int chunks = 0;
+        while (true) {
+            try (OperationMetrics.Timer timer = SWEEP_CHUNK.time();
+                 ConnectionPool.Lease lease = pool.writer()) {
+                Connection conn = lease.connection();
+                PostingJournal journal = DatabaseHandler.journal;
+                PostingJournal.Appended appended = null;
+                conn.setAutoCommit(false);
+                try {
+                    PreparedStatement end = lease.prepare(CHUNK_END_SQL);
+                    end.setLong(1, lastId);
+                    end.setInt(2, chunkSize);
+                    long upperId;
+                    try (ResultSet rs = end.executeQuery()) {
+                        rs.next();
+                        upperId = rs.getLong(1);
+                        if (rs.wasNull()) {
+                            complete(lease, period);
+                            conn.commit();
+                            break;
+                        }
+                    }
+
+                    String timestamp = journal == null ? null : journal.timestamp();
+                    Swept swept = sweep(lease, period, lastId, upperId, timestamp);
+                    if (journal != null) {
+                        appended = journal.append(lease, new PostingJournal.SweepChunk(timestamp, period, lastId, upperId));
+                    }
+                    conn.commit();
+                    // a chunk touches thousands of accounts; dropping everything is cheaper than finding them
+                    AccountSnapshotCache.invalidateAll();
+
+                    lastId = upperId;
+                    accounts += swept.accounts();
+                    amount += swept.amount();
+                    chunks++;
+                } catch (SQLException e) {
+                    SWEEP_CHUNK.error(e);
+                    conn.rollback();
+                    if (journal != null) {
+                        journal.discard(appended);
+                    }
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+        return new SweepResult(period, accounts, amount, chunks, System.nanoTime() - start, false);
+    }
+
+    // posts the transfers of savings ids (afterId, upToId], zeroes those accounts and advances the checkpoint
+    private static Swept sweep(ConnectionPool.Lease lease, String period, long afterId, long upToId, String timestamp)
+            throws SQLException {
+        PreparedStatement total = lease.prepare(CHUNK_TOTAL_SQL);
+        total.setLong(1, afterId);
+        total.setLong(2, upToId);
+        long chunkAmount;
+        try (ResultSet rs = total.executeQuery()) {
+            rs.next();
+            chunkAmount = rs.getLong(1);
+        }
+
+        PreparedStatement post = lease.prepare(POST_SQL);
+        post.setInt(1, Categorizer.categorize(DESCRIPTION));
+        post.setString(2, timestamp);
+        post.setLong(3, afterId);
+        post.setLong(4, upToId);
+        int posted = post.executeUpdate();
+        range(lease.prepare(RESET_SQL), afterId, upToId).executeUpdate();
+
+        PreparedStatement checkpoint = lease.prepare(CHECKPOINT_SQL);
+        checkpoint.setLong(1, upToId);
+        checkpoint.setInt(2, posted);
+        checkpoint.setLong(3, chunkAmount);
+        checkpoint.setString(4, period);
+        checkpoint.executeUpdate();
+        return new Swept(posted, chunkAmount);
+    }
+
+    /** Re-executes a journaled chunk; see {@link PostingJournal#replay}. */
+    static void replay(ConnectionPool pool, PostingJournal.SweepChunk chunk) throws SQLException {
+        PostingJournal journal = DatabaseHandler.journal;
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement open = lease.prepare(OPEN_SQL);
+                open.setString(1, chunk.period());
+                open.executeUpdate();
+                String timestamp = journal.timestamp();
+                sweep(lease, chunk.period(), chunk.afterId(), chunk.upToId(), timestamp);
+                journal.append(lease, new PostingJournal.SweepChunk(timestamp, chunk.period(), chunk.afterId(),
+                        chunk.upToId()));
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        AccountSnapshotCache.invalidateAll();
+    }
+
+    private static PreparedStatement range(PreparedStatement ps, long afterId, long upToId) throws SQLException {
+        ps.setLong(1, afterId);
+        ps.setLong(2, upToId);
+        return ps;
+    }
+
+    private static void complete(ConnectionPool.Lease lease, String period) throws SQLException {
+        PreparedStatement ps = lease.prepare(
+                "UPDATE savings_sweeps SET completed_at = CURRENT_TIMESTAMP WHERE period = ?");
+        ps.setString(1, period);
+        ps.executeUpdate();
+    }
+
+    public static void report(SweepResult result) {
+        if (result.alreadyComplete()) {
+            System.out.println("Savings sweep for " + result.period() + " already completed.");
+            return;
+        }
+        System.out.printf(Locale.US, "Transferred %s from %d savings accounts to balance for %s (%d chunks, %.2f s)%n",
+                Money.format(result.amount()), result.accounts(), result.period(), result.chunks(), result.elapsedNanos() / 1e9);
+    }
+}
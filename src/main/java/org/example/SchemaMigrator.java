@@ -0,0 +1,539 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies ordered schema migrations and records progress in {@code PRAGMA user_version}.
+ *
+ * Each migration runs in its own transaction together with the version bump, so a crash
+ * leaves the database at the last fully applied version. When the stored version already
+ * matches the newest migration, startup issues no DDL at all.
+ */
+public class SchemaMigrator {
+
+    @FunctionalInterface
+    interface Step {
+        void apply(Statement stmt) throws SQLException;
+    }
+
+    record Migration(int version, String description, Step step) {
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "base tables", SchemaMigrator::createBaseTables),
+            new Migration(2, "materialized balances", SchemaMigrator::createBalances),
+            new Migration(3, "indexes for history, loan and savings lookups", SchemaMigrator::createIndexes),
+            new Migration(4, "savings sweep checkpoints", SchemaMigrator::createSavingsSweeps),
+            new Migration(5, "scheduled job runs", SchemaMigrator::createJobRuns),
+            new Migration(6, "loan installment schedules", SchemaMigrator::createLoanInstallments),
+            new Migration(7, "loan repayment methods", SchemaMigrator::addRepaymentMethod),
+            new Migration(8, "loan delinquency state", SchemaMigrator::createDelinquency),
+            new Migration(9, "money as integer minor units", SchemaMigrator::convertMoneyToMinorUnits),
+            new Migration(10, "daily reporting rollups", SchemaMigrator::createDailyRollups),
+            new Migration(11, "transaction categories", SchemaMigrator::createCategories),
+            new Migration(12, "full-text search over descriptions", SchemaMigrator::createTransactionSearch),
+            new Migration(13, "posting journal checkpoint", SchemaMigrator::createJournalState),
+            new Migration(14, "repayable legacy loans", SchemaMigrator::fillLegacyMonthlyRepayment)
+    );
+
+    // every column holding an amount; migration 9 turns them from REAL major units into INTEGER cents
+    private static final Map<String, List<String>> MONEY_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        MONEY_COLUMNS.put("transactions", List.of("amount"));
+        MONEY_COLUMNS.put("balances", List.of("balance"));
+        MONEY_COLUMNS.put("savings", List.of("saved_amount"));
+        MONEY_COLUMNS.put("loans", List.of("principal_amount", "outstanding_balance", "monthly_repayment"));
+        MONEY_COLUMNS.put("loan_installments", List.of("amount_due", "amount_paid"));
+        MONEY_COLUMNS.put("loan_reminders", List.of("amount_due"));
+        MONEY_COLUMNS.put("savings_sweeps", List.of("amount"));
+    }
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+    }
+
+    public static void migrate(ConnectionPool pool) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.writer();
+             Statement stmt = lease.connection().createStatement()) {
+            Connection conn = lease.connection();
+
+            int current = userVersion(stmt);
+            if (current >= latestVersion()) {
+                return;
+            }
+
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() <= current) {
+                    continue;
+                }
+
+                conn.setAutoCommit(false);
+                try {
+                    migration.step().apply(stmt);
+                    // user_version is transactional, so it only moves if the migration commits
+                    stmt.execute("PRAGMA user_version = " + migration.version());
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Migration " + migration.version() + " ("
+                            + migration.description() + ") failed: " + e.getMessage(), e);
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                System.out.println("Applied schema migration " + migration.version() + ": " + migration.description());
+            }
+
+            // refresh planner statistics for the new indexes
+            stmt.execute("PRAGMA optimize");
+        }
+    }
+
+    private static int userVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static boolean columnExists(Statement stmt, String table, String column) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // ====== Migrations ======
+
+    private static void createBaseTables(Statement stmt) throws SQLException {
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS users (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "name TEXT NOT NULL, " +
+                "email TEXT NOT NULL UNIQUE, " +
+                "password TEXT NOT NULL)");
+
+        // transaction table
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS transactions (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                type TEXT NOT NULL,
+                amount REAL NOT NULL,
+                description TEXT NOT NULL,
+                user_email TEXT NOT NULL,
+                timestamp DATETIME DEFAULT CURRENT_TIMESTAMP,
+                FOREIGN KEY (user_email) REFERENCES users(email)
+            );
+            """);
+
+        // loans table
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS loans (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                user_email TEXT NOT NULL,
+                principal_amount REAL NOT NULL,
+                interest_rate REAL NOT NULL,
+                repayment_period INTEGER NOT NULL,
+                outstanding_balance REAL NOT NULL,
+                monthly_repayment REAL,
+                status TEXT NOT NULL,
+                created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                next_payment_date DATE,
+                FOREIGN KEY (user_email) REFERENCES users(email)
+            );
+            """);
+
+        // older ledger.db files were created before these loan columns existed
+        if (!columnExists(stmt, "loans", "monthly_repayment")) {
+            stmt.executeUpdate("ALTER TABLE loans ADD COLUMN monthly_repayment REAL");
+        }
+        if (!columnExists(stmt, "loans", "next_payment_date")) {
+            stmt.executeUpdate("ALTER TABLE loans ADD COLUMN next_payment_date DATE");
+        }
+
+        // savings table
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS savings (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "user_email TEXT NOT NULL UNIQUE, " +
+                "percentage INTEGER NOT NULL, " +
+                "saved_amount REAL DEFAULT 0, " +
+                "FOREIGN KEY (user_email) REFERENCES users(email))");
+    }
+
+    // running balance per user, so reading a balance never has to scan the user's transactions
+    private static void createBalances(Statement stmt) throws SQLException {
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS balances (
+                user_email TEXT PRIMARY KEY,
+                balance REAL NOT NULL DEFAULT 0,
+                FOREIGN KEY (user_email) REFERENCES users(email)
+            );
+            """);
+
+        // the trigger posts into balances in the same statement as the insert, so every
+        // writer (saveTransaction, repayLoan, the savings sweep) stays consistent with it
+        stmt.executeUpdate("""
+            CREATE TRIGGER IF NOT EXISTS trg_transactions_balance
+            AFTER INSERT ON transactions
+            WHEN NEW.user_email IS NOT NULL AND NEW.type IN ('Credit', 'Debit')
+            BEGIN
+                INSERT INTO balances (user_email, balance)
+                VALUES (NEW.user_email, CASE NEW.type WHEN 'Credit' THEN -NEW.amount ELSE NEW.amount END)
+                ON CONFLICT (user_email) DO UPDATE SET balance = balance + excluded.balance;
+            END;
+            """);
+
+        // rebuild rather than append, so databases that already have the table end up exact too
+        int users = rebuildBalances(stmt);
+        System.out.println("Backfilled balances for " + users + " users.");
+    }
+
+    private static int rebuildBalances(Statement stmt) throws SQLException {
+        stmt.executeUpdate("DELETE FROM balances");
+        return stmt.executeUpdate("INSERT INTO balances (user_email, balance) " +
+                "SELECT user_email, SUM(CASE " +
+                "WHEN type = 'Credit' THEN -amount " +
+                "WHEN type = 'Debit' THEN amount " +
+                "ELSE 0 END) " +
+                "FROM transactions WHERE user_email IS NOT NULL GROUP BY user_email");
+    }
+
+    private static void createIndexes(Statement stmt) throws SQLException {
+        // showHistory / filterHistory / exportToCSV: equality on user, range and order on timestamp
+        stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_transactions_user_time " +
+                "ON transactions (user_email, timestamp, id)");
+
+        // getLoanBalance, repayLoan and checkLoanReminders only touch these columns,
+        // so the index covers them and the loans table itself is never read
+        stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_loans_user_status " +
+                "ON loans (user_email, status, created_at, outstanding_balance, monthly_repayment, repayment_period)");
+
+        // getSavings / processSavingsOnDebit; older databases lack the UNIQUE constraint on user_email
+        stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_savings_user " +
+                "ON savings (user_email, percentage, saved_amount)");
+    }
+
+    // one row per month-end sweep; SavingsSweepJob advances last_savings_id in the same
+    // transaction as each chunk it posts, so a restarted sweep resumes after the last commit
+    private static void createSavingsSweeps(Statement stmt) throws SQLException {
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS savings_sweeps (
+                period TEXT PRIMARY KEY,
+                last_savings_id INTEGER NOT NULL DEFAULT 0,
+                accounts INTEGER NOT NULL DEFAULT 0,
+                amount REAL NOT NULL DEFAULT 0,
+                started_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                completed_at DATETIME
+            );
+            """);
+    }
+
+    // one row per job and period; JobScheduler replays periods that never reached 'succeeded'
+    private static void createJobRuns(Statement stmt) throws SQLException {
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS job_runs (
+                job TEXT NOT NULL,
+                period TEXT NOT NULL,
+                scheduled_for INTEGER NOT NULL,
+                status TEXT NOT NULL,
+                attempts INTEGER NOT NULL DEFAULT 0,
+                started_at DATETIME,
+                finished_at DATETIME,
+                message TEXT,
+                PRIMARY KEY (job, period)
+            );
+            """);
+    }
+
+    private static void createLoanInstallments(Statement stmt) throws SQLException {
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS loan_installments (
+                loan_id INTEGER NOT NULL,
+                installment_no INTEGER NOT NULL,
+                due_date DATE NOT NULL,
+                amount_due REAL NOT NULL,
+                amount_paid REAL NOT NULL DEFAULT 0,
+                paid_at DATETIME,
+                PRIMARY KEY (loan_id, installment_no),
+                FOREIGN KEY (loan_id) REFERENCES loans(id)
+            ) WITHOUT ROWID;
+            """);
+
+        // queued by LoanReminderJob, read at login, cleared as installments are paid
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS loan_reminders (
+                loan_id INTEGER NOT NULL,
+                due_date DATE NOT NULL,
+                user_email TEXT NOT NULL,
+                amount_due REAL NOT NULL,
+                created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                PRIMARY KEY (loan_id, due_date)
+            ) WITHOUT ROWID;
+            """);
+        stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_loan_reminders_user " +
+                "ON loan_reminders (user_email, due_date)");
+
+        // the reminder sweep is a range scan over active loans by due date, across all users
+        stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_loans_next_due " +
+                "ON loans (next_payment_date) WHERE status = 'active'");
+
+        LoanSchedule.backfill(stmt.getConnection());
+    }
+
+    // FLAT or REDUCING (see Amortization); every loan before this column was flat
+    private static void addRepaymentMethod(Statement stmt) throws SQLException {
+        if (!columnExists(stmt, "loans", "repayment_method")) {
+            stmt.executeUpdate("ALTER TABLE loans ADD COLUMN repayment_method TEXT NOT NULL DEFAULT 'FLAT'");
+        }
+    }
+
+    // only users with an overdue installment have a row; see DelinquencyTracker
+    private static void createDelinquency(Statement stmt) throws SQLException {
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS delinquency (
+                user_email TEXT PRIMARY KEY,
+                overdue_since DATE NOT NULL,
+                blocked INTEGER NOT NULL DEFAULT 0,
+                updated_at DATETIME DEFAULT CURRENT_TIMESTAMP
+            ) WITHOUT ROWID;
+            """);
+        DelinquencyTracker.rebuild(stmt.getConnection(), LocalDate.now());
+    }
+
+    /**
+     * SQLite cannot change a column's type in place, so each table with money columns is
+     * rebuilt from its own CREATE statement with those columns declared INTEGER, and the
+     * rows are copied across as rounded cents. Triggers and views reference the tables by
+     * name, so they are dropped first and recreated afterwards; the reporting views come
+     * back in their minor-unit form.
+     */
+    private static void convertMoneyToMinorUnits(Statement stmt) throws SQLException {
+        List<String[]> triggers = new ArrayList<>();
+        List<String[]> views = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT type, name, sql FROM sqlite_master WHERE type IN ('trigger', 'view')")) {
+            while (rs.next()) {
+                ("trigger".equals(rs.getString(1)) ? triggers : views).add(new String[]{rs.getString(2), rs.getString(3)});
+            }
+        }
+        for (String[] trigger : triggers) {
+            stmt.executeUpdate("DROP TRIGGER \"" + trigger[0] + "\"");
+        }
+        for (String[] view : views) {
+            stmt.executeUpdate("DROP VIEW \"" + view[0] + "\"");
+        }
+
+        for (Map.Entry<String, List<String>> table : MONEY_COLUMNS.entrySet()) {
+            rebuildWithMinorUnits(stmt, table.getKey(), table.getValue());
+        }
+        // a rounded floating-point running total can be a cent off the sum of the rounded postings
+        rebuildBalances(stmt);
+
+        for (String[] trigger : triggers) {
+            stmt.executeUpdate(trigger[1]);
+        }
+        for (String[] view : views) {
+            ReportingViews.View reporting = ReportingViews.find(view[0]);
+            stmt.executeUpdate(reporting != null ? reporting.createSql() : view[1]);
+        }
+    }
+
+    private static void rebuildWithMinorUnits(Statement stmt, String table, List<String> moneyColumns)
+            throws SQLException {
+        String createSql;
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+            if (!rs.next()) {
+                return;
+            }
+            createSql = rs.getString(1);
+        }
+        List<String> indexes = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("SELECT sql FROM sqlite_master " +
+                "WHERE type = 'index' AND tbl_name = '" + table + "' AND sql IS NOT NULL")) {
+            while (rs.next()) {
+                indexes.add(rs.getString(1));
+            }
+        }
+        Long sequence = null;
+        try (ResultSet rs = stmt.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = '" + table + "'")) {
+            if (rs.next()) {
+                sequence = rs.getLong(1);
+            }
+        }
+
+        // keep the table's own definition (legacy column order, constraints) and only retype the money columns
+        Matcher name = Pattern.compile("^CREATE\\s+TABLE\\s+(IF\\s+NOT\\s+EXISTS\\s+)?(\"" + table + "\"|" + table + ")(?=[\\s(])",
+                Pattern.CASE_INSENSITIVE).matcher(createSql);
+        if (!name.find()) {
+            throw new SQLException("Unexpected definition of " + table + ": " + createSql);
+        }
+        String newTable = table + "__new";
+        String newSql = "CREATE TABLE " + newTable + createSql.substring(name.end());
+        for (String column : moneyColumns) {
+            newSql = Pattern.compile("(\"?\\b" + column + "\\b\"?\\s+)REAL\\b", Pattern.CASE_INSENSITIVE)
+                    .matcher(newSql).replaceFirst("$1INTEGER");
+        }
+
+        List<String> columns = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                String column = rs.getString("name");
+                columns.add(column);
+                values.add(moneyColumns.contains(column.toLowerCase())
+                        ? "CAST(ROUND(" + column + " * " + Money.MINOR_PER_MAJOR + ") AS INTEGER)"
+                        : column);
+            }
+        }
+
+        stmt.executeUpdate(newSql);
+        int rows = stmt.executeUpdate("INSERT INTO " + newTable + " (" + String.join(", ", columns) + ") " +
+                "SELECT " + String.join(", ", values) + " FROM " + table);
+        stmt.executeUpdate("DROP TABLE " + table);
+        stmt.executeUpdate("ALTER TABLE " + newTable + " RENAME TO " + table);
+        for (String index : indexes) {
+            stmt.executeUpdate(index);
+        }
+        if (sequence != null) {
+            // AUTOINCREMENT must not hand out ids of rows deleted before the rebuild
+            stmt.executeUpdate("DELETE FROM sqlite_sequence WHERE name = '" + table + "'");
+            stmt.executeUpdate("INSERT INTO sqlite_sequence (name, seq) VALUES ('" + table + "', " + sequence + ")");
+        }
+        System.out.println("Converted " + rows + " " + table + " rows to minor units.");
+    }
+
+    // the BI views read per-day totals kept current by triggers instead of grouping every transaction;
+    // the triggers and the backfill need transactions.category_id, so migration 11 installs them
+    private static void createDailyRollups(Statement stmt) throws SQLException {
+        ReportingRollups.createTable(stmt);
+        ReportingRollups.createTriggers(stmt, ReportingRollups.CategorySource.KEYWORDS);
+        int rows = ReportingRollups.rebuild(stmt.getConnection(), ReportingRollups.CategorySource.KEYWORDS);
+        System.out.println("Backfilled " + rows + " daily rollup rows.");
+        ReportingViews.replaceExisting(stmt);
+    }
+
+    // categories are assigned by Categorizer as postings are written; see there for the matching rules
+    private static void createCategories(Statement stmt) throws SQLException {
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS categories (
+                id INTEGER PRIMARY KEY,
+                name TEXT NOT NULL UNIQUE,
+                priority INTEGER NOT NULL
+            );
+            """);
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS category_keywords (
+                keyword TEXT PRIMARY KEY,
+                category_id INTEGER NOT NULL,
+                FOREIGN KEY (category_id) REFERENCES categories(id)
+            ) WITHOUT ROWID;
+            """);
+        // the rules vw_spending_categories used to apply with CASE, in the same order
+        stmt.executeUpdate("INSERT OR IGNORE INTO categories (id, name, priority) VALUES " +
+                "(" + Categorizer.OTHER + ", 'Other', 1000), (2, 'Food', 10), (3, 'Housing', 20), (4, 'Transport', 30)");
+        stmt.executeUpdate("INSERT OR IGNORE INTO category_keywords (keyword, category_id) VALUES " +
+                "('food', 2), ('rent', 3), ('transport', 4)");
+
+        if (!columnExists(stmt, "transactions", "category_id")) {
+            stmt.executeUpdate("ALTER TABLE transactions ADD COLUMN category_id INTEGER NOT NULL DEFAULT "
+                    + Categorizer.OTHER);
+        }
+        int changed = Categorizer.backfill(stmt.getConnection(), Categorizer.read(stmt.getConnection()));
+        System.out.println("Categorized " + changed + " transactions.");
+
+        // a user's postings in one category, newest first, without scanning the rest of their history
+        stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_transactions_user_category " +
+                "ON transactions (user_email, category_id, timestamp, id)");
+
+        // the rollups switch from migration 10's keyword rules to the stored category
+        ReportingRollups.createTriggers(stmt, ReportingRollups.CategorySource.STORED);
+        int rows = ReportingRollups.rebuild(stmt.getConnection(), ReportingRollups.CategorySource.STORED);
+        System.out.println("Backfilled " + rows + " daily rollup rows.");
+    }
+
+    // FTS5 index for TransactionSearch. It is an external-content table: the text lives only in
+    // transactions, read through a view that adds the owner token, hex(user_email)
+    private static void createTransactionSearch(Statement stmt) throws SQLException {
+        stmt.executeUpdate("""
+            CREATE VIEW IF NOT EXISTS transactions_fts_source AS
+            SELECT id, description, hex(user_email) AS owner FROM transactions;
+            """);
+        stmt.executeUpdate("""
+            CREATE VIRTUAL TABLE IF NOT EXISTS transactions_fts USING fts5(
+                description, owner,
+                content = 'transactions_fts_source', content_rowid = 'id',
+                prefix = '2 3', tokenize = 'unicode61 remove_diacritics 2'
+            );
+            """);
+        // an external-content index must be told the old values of a row to remove it
+        stmt.executeUpdate("""
+            CREATE TRIGGER IF NOT EXISTS trg_transactions_fts_insert
+            AFTER INSERT ON transactions
+            BEGIN
+                INSERT INTO transactions_fts (rowid, description, owner)
+                VALUES (NEW.id, NEW.description, hex(NEW.user_email));
+            END;
+            """);
+        stmt.executeUpdate("""
+            CREATE TRIGGER IF NOT EXISTS trg_transactions_fts_delete
+            AFTER DELETE ON transactions
+            BEGIN
+                INSERT INTO transactions_fts (transactions_fts, rowid, description, owner)
+                VALUES ('delete', OLD.id, OLD.description, hex(OLD.user_email));
+            END;
+            """);
+        stmt.executeUpdate("""
+            CREATE TRIGGER IF NOT EXISTS trg_transactions_fts_update
+            AFTER UPDATE OF description, user_email ON transactions
+            BEGIN
+                INSERT INTO transactions_fts (transactions_fts, rowid, description, owner)
+                VALUES ('delete', OLD.id, OLD.description, hex(OLD.user_email));
+                INSERT INTO transactions_fts (rowid, description, owner)
+                VALUES (NEW.id, NEW.description, hex(NEW.user_email));
+            END;
+            """);
+
+        stmt.executeUpdate("INSERT INTO transactions_fts (transactions_fts) VALUES ('rebuild')");
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM transactions")) {
+            System.out.println("Indexed " + (rs.next() ? rs.getLong(1) : 0) + " transaction descriptions for search.");
+        }
+    }
+
+    // how far the tables reflect the PostingJournal, updated in the transaction of each journaled write
+    private static void createJournalState(Statement stmt) throws SQLException {
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS journal_state (
+                id INTEGER PRIMARY KEY CHECK (id = 1),
+                journal_id INTEGER NOT NULL,
+                applied_offset INTEGER NOT NULL
+            );
+            """);
+    }
+
+    // migration 6 schedules legacy loans without filling in monthly_repayment, leaving them
+    // overdue but impossible to repay; their flat schedule has the installment amount
+    private static void fillLegacyMonthlyRepayment(Statement stmt) throws SQLException {
+        int rows = stmt.executeUpdate("""
+            UPDATE loans SET monthly_repayment = (
+                SELECT amount_due FROM loan_installments
+                WHERE loan_id = loans.id ORDER BY installment_no LIMIT 1)
+            WHERE monthly_repayment IS NULL
+              AND EXISTS (SELECT 1 FROM loan_installments WHERE loan_id = loans.id);
+            """);
+        DelinquencyTracker.rebuild(stmt.getConnection(), LocalDate.now());
+        System.out.println("Filled in the monthly repayment of " + rows + " legacy loans.");
+    }
+}
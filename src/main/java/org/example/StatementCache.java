@@ -0,0 +1,82 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements for one connection, keyed by SQL text.
+ *
+ * SQLite parses and plans a statement when it is prepared, so reusing the prepared
+ * handle skips that work on every repeat call. Statements handed out by the cache stay
+ * owned by it: callers close their ResultSets but never the statement itself. A cache
+ * is only ever used by the thread holding its connection's lease, so the map needs no
+ * locking of its own; the counters are adders so they can be read from any thread.
+ */
+public class StatementCache {
+    private final Connection conn;
+    private final Map<String, PreparedStatement> statements;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public StatementCache(Connection conn, int capacity) {
+        this.conn = conn;
+        // access-ordered so the eldest entry is always the least recently used statement
+        this.statements = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                evictions.increment();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (ps != null && !ps.isClosed()) {
+            hits.increment();
+            ps.clearParameters();
+            return ps;
+        }
+
+        misses.increment();
+        ps = conn.prepareStatement(sql);
+        statements.put(sql, ps);
+        return ps;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public void close() {
+        for (PreparedStatement ps : statements.values()) {
+            closeQuietly(ps);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.example;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Paged access to a user's transaction history.
+ *
+ * Pages are found by seeking on the sort key plus id (keyset pagination) rather than
+ * with OFFSET, so page 1000 costs the same as page 1: SQLite jumps straight to the
+ * cursor position in idx_transactions_user_time instead of stepping over every row
+ * before it.
+ */
+public class TransactionHistory {
+    public static final int DEFAULT_PAGE_SIZE = Integer.getInteger("ledger.history.pageSize", 20);
+    private static final OperationMetrics HISTORY_PAGE = Metrics.operation("history.page");
+
+    /**
+     * Optional filters and ordering; null fields are not applied. Dates are inclusive YYYY-MM-DD,
+     * amounts are in minor units.
+     */
+    public record Filter(String fromDate, String toDate, String type, Long minAmount, Long maxAmount,
+                         Integer categoryId, boolean sortByAmount, boolean ascending) {
+        public static Filter none() {
+            return new Filter(null, null, null, null, null, null, false, false);
+        }
+    }
+
+    public record Row(long id, String type, long amount, String description, String timestamp) {
+    }
+
+    /** Position of a row in the sort order: the sort key (timestamp or amount) plus its id as tie-breaker. */
+    public record Cursor(String timestamp, long amount, long id) {
+        static Cursor of(Row row) {
+            return new Cursor(row.timestamp(), row.amount(), row.id());
+        }
+    }
+
+    /** One page of rows; {@code next} / {@code previous} are null when there is nothing further that way. */
+    public record Page(List<Row> rows, Cursor next, Cursor previous) {
+    }
+
+    public static Page firstPage(String email, Filter filter, int pageSize) throws SQLException {
+        return fetch(email, filter, pageSize, null, true);
+    }
+
+    public static Page nextPage(String email, Filter filter, int pageSize, Cursor after) throws SQLException {
+        return fetch(email, filter, pageSize, after, true);
+    }
+
+    public static Page previousPage(String email, Filter filter, int pageSize, Cursor before) throws SQLException {
+        return fetch(email, filter, pageSize, before, false);
+    }
+
+    @SuppressWarnings("try")
+    private static Page fetch(String email, Filter filter, int pageSize, Cursor cursor, boolean forward)
+            throws SQLException {
+        String key = filter.sortByAmount() ? "amount" : "timestamp";
+        // walking backwards is the same seek with the order flipped, then reversed in memory
+        boolean ascending = filter.ascending() == forward;
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, type, amount, description, timestamp FROM transactions WHERE user_email = ?");
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(email);
+
+        appendFilters(sql, parameters, filter, "");
+        if (cursor != null) {
+            sql.append(" AND (").append(key).append(", id) ").append(ascending ? ">" : "<").append(" (?, ?)");
+            parameters.add(filter.sortByAmount() ? cursor.amount() : cursor.timestamp());
+            parameters.add(cursor.id());
+        }
+        String direction = ascending ? " ASC" : " DESC";
+        sql.append(" ORDER BY ").append(key).append(direction).append(", id").append(direction);
+        // one extra row tells us whether another page exists without a COUNT query
+        sql.append(" LIMIT ?");
+        parameters.add(pageSize + 1);
+
+        List<Row> rows = new ArrayList<>(pageSize + 1);
+        try (OperationMetrics.Timer timer = HISTORY_PAGE.time();
+             ConnectionPool.Lease lease = DatabaseHandler.getPool().reader()) {
+            PreparedStatement ps = lease.prepare(sql.toString());
+            for (int i = 0; i < parameters.size(); i++) {
+                ps.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Row(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getString(4), rs.getString(5)));
+                }
+            }
+        } catch (SQLException e) {
+            HISTORY_PAGE.error(e);
+            throw e;
+        }
+
+        boolean more = rows.size() > pageSize;
+        if (more) {
+            rows.remove(rows.size() - 1);
+        }
+        if (!forward) {
+            Collections.reverse(rows);
+        }
+        if (rows.isEmpty()) {
+            return new Page(rows, null, null);
+        }
+
+        Cursor first = Cursor.of(rows.get(0));
+        Cursor last = Cursor.of(rows.get(rows.size() - 1));
+        if (forward) {
+            return new Page(rows, more ? last : null, cursor != null ? first : null);
+        }
+        return new Page(rows, last, more ? first : null);
+    }
+
+    /** Appends the filter's conditions on {@code alias}-qualified columns, binding values into parameters. */
+    static void appendFilters(StringBuilder sql, List<Object> parameters, Filter filter, String alias) {
+        if (filter.fromDate() != null) {
+            sql.append(" AND ").append(alias).append("timestamp >= ?");
+            parameters.add(filter.fromDate());
+        }
+        if (filter.toDate() != null) {
+            sql.append(" AND ").append(alias).append("timestamp < date(?, '+1 day')");
+            parameters.add(filter.toDate());
+        }
+        if (filter.type() != null) {
+            sql.append(" AND LOWER(").append(alias).append("type) = LOWER(?)");
+            parameters.add(filter.type());
+        }
+        if (filter.minAmount() != null) {
+            sql.append(" AND ").append(alias).append("amount >= ?");
+            parameters.add(filter.minAmount());
+        }
+        if (filter.maxAmount() != null) {
+            sql.append(" AND ").append(alias).append("amount <= ?");
+            parameters.add(filter.maxAmount());
+        }
+        if (filter.categoryId() != null) {
+            sql.append(" AND ").append(alias).append("category_id = ?");
+            parameters.add(filter.categoryId());
+        }
+    }
+
+    /** Renders a page as one string so it reaches the console in a single write. */
+    public static String render(Page page) {
+        StringBuilder out = new StringBuilder(128 + page.rows().size() * 80);
+        out.append("\nID | Type   | Amount       | Description          | Date\n");
+        out.append("-------------------------------------------------------------\n");
+        try (Formatter formatter = new Formatter(out, Locale.US)) {
+            for (Row row : page.rows()) {
+                formatter.format("%-2d | %-6s | %12s | %-20s | %s%n",
+                        row.id(), row.type(), Money.format(row.amount()), row.description(), row.timestamp());
+            }
+        }
+        if (page.rows().isEmpty()) {
+            out.append("No transactions found.\n");
+        }
+        return out.toString();
+    }
+}
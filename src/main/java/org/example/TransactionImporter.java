@@ -0,0 +1,290 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk loader for bank statements in the layout {@code exportToCSV} writes
+ * ({@code Date,Description,Type,Amount}).
+ *
+ * The file is streamed, never loaded whole. Rows are inserted in {@code executeBatch}
+ * chunks, one explicit transaction per chunk, so a large statement costs one commit per
+ * chunk instead of one per row. The writer is released between chunks so interactive
+ * sessions are not locked out for the length of the import. With the posting journal
+ * enabled each chunk is journaled with the rows it accepted.
+ */
+public class TransactionImporter {
+    private static final int BATCH_SIZE = Integer.getInteger("ledger.import.batchSize", 5000);
+    private static final int MAX_REPORTED_REJECTS = 20;
+    private static final OperationMetrics IMPORT_CHUNK = Metrics.operation("txn.import.chunk");
+    private static final Pattern TIMESTAMP = Pattern.compile("\\d{4}-\\d{2}-\\d{2}( \\d{2}:\\d{2}:\\d{2})?");
+
+    static final String INSERT_SQL = "INSERT INTO transactions(type, amount, description, user_email, timestamp, category_id) " +
+            "VALUES(?,?,?,?,COALESCE(?, CURRENT_TIMESTAMP),?)";
+
+    record Row(long line, String timestamp, String description, String type, long amount) {
+    }
+
+    public record ImportResult(long imported, long rejected, long elapsedNanos) {
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : imported * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    public static ImportResult importCsv(Path file, String email) {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            ImportResult result = importCsv(in, email);
+            System.out.printf(Locale.US, "\nImported %d transactions (%d rejected) in %.2f s, %.0f rows/sec\n",
+                    result.imported(), result.rejected(), result.elapsedNanos() / 1e9, result.rowsPerSecond());
+            return result;
+        } catch (IOException | SQLException e) {
+            System.out.println("Error importing CSV: " + e.getMessage());
+            e.printStackTrace();
+            return new ImportResult(0, 0, 0);
+        }
+    }
+
+    public static ImportResult importCsv(BufferedReader in, String email) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long[] counts = new long[2]; // imported, rejected
+        long[] line = new long[1];
+        List<Row> chunk = new ArrayList<>(BATCH_SIZE);
+
+        List<String> record;
+        boolean first = true;
+        while ((record = readRecord(in, line)) != null) {
+            if (first) {
+                first = false;
+                if (!record.isEmpty() && record.get(0).equalsIgnoreCase("Date")) {
+                    continue; // header
+                }
+            }
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+
+            Row row = parseRow(line[0], record, counts);
+            if (row == null) {
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() >= BATCH_SIZE) {
+                flush(chunk, email, counts);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            flush(chunk, email, counts);
+        }
+        return new ImportResult(counts[0], counts[1], System.nanoTime() - start);
+    }
+
+    // checks that do not depend on the balance, done before taking the writer
+    private static Row parseRow(long line, List<String> record, long[] counts) {
+        if (record.size() != 4) {
+            reject(line, "expected 4 columns but found " + record.size(), counts);
+            return null;
+        }
+
+        String timestamp = record.get(0).trim();
+        if (timestamp.isEmpty()) {
+            timestamp = null;
+        } else if (!TIMESTAMP.matcher(timestamp).matches()) {
+            reject(line, "invalid date '" + timestamp + "'", counts);
+            return null;
+        }
+
+        String description = record.get(1);
+        String type = record.get(2).trim();
+        if (type.equalsIgnoreCase("Debit")) {
+            type = "Debit";
+        } else if (type.equalsIgnoreCase("Credit")) {
+            type = "Credit";
+        } else {
+            reject(line, "unknown type '" + type + "'", counts);
+            return null;
+        }
+
+        long amount;
+        try {
+            amount = Money.parse(record.get(3).trim());
+        } catch (NumberFormatException | ArithmeticException e) {
+            reject(line, "invalid amount '" + record.get(3) + "'", counts);
+            return null;
+        }
+
+        String error = type.equals("Debit")
+                ? PostingRules.checkDebit(amount, description)
+                : PostingRules.checkCredit(amount, description, Long.MAX_VALUE);
+        if (error != null) {
+            reject(line, error, counts);
+            return null;
+        }
+        return new Row(line, timestamp, description, type, amount);
+    }
+
+    @SuppressWarnings("try")
+    private static void flush(List<Row> chunk, String email, long[] counts) throws SQLException {
+        try (OperationMetrics.Timer timer = IMPORT_CHUNK.time();
+             ConnectionPool.Lease lease = DatabaseHandler.getPool().writer()) {
+            Connection conn = lease.connection();
+            PostingJournal journal = DatabaseHandler.journal;
+            PostingJournal.Appended appended = null;
+            conn.setAutoCommit(false);
+            try {
+                // read under the writer so no other session can move the balance mid-chunk
+                PreparedStatement balanceStmt = lease.prepare("SELECT balance FROM balances WHERE user_email = ?");
+                balanceStmt.setString(1, email);
+                long balance;
+                try (ResultSet rs = balanceStmt.executeQuery()) {
+                    balance = rs.next() ? rs.getLong(1) : 0;
+                }
+
+                // undated rows get the journal's timestamp, so a replay stores the same one
+                String timestamp = journal == null ? null : journal.timestamp();
+                List<PostingJournal.ImportedPosting> accepted = new ArrayList<>(chunk.size());
+                for (Row row : chunk) {
+                    if (row.type().equals("Credit")) {
+                        String error = PostingRules.checkCredit(row.amount(), row.description(), balance);
+                        if (error != null) {
+                            reject(row.line(), error, counts);
+                            continue;
+                        }
+                        balance -= row.amount();
+                    } else {
+                        balance += row.amount();
+                    }
+                    accepted.add(new PostingJournal.ImportedPosting(row.timestamp() == null ? timestamp : row.timestamp(),
+                            row.type(), row.amount(), row.description()));
+                }
+                insert(lease, email, accepted);
+                if (journal != null && !accepted.isEmpty()) {
+                    appended = journal.append(lease, new PostingJournal.Imported(timestamp, email, accepted));
+                }
+                conn.commit();
+                AccountSnapshotCache.invalidate(email);
+                counts[0] += accepted.size();
+            } catch (SQLException e) {
+                IMPORT_CHUNK.error(e);
+                conn.rollback();
+                if (journal != null) {
+                    journal.discard(appended);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void insert(ConnectionPool.Lease lease, String email, List<PostingJournal.ImportedPosting> postings)
+            throws SQLException {
+        PreparedStatement ps = lease.prepare(INSERT_SQL);
+        for (PostingJournal.ImportedPosting posting : postings) {
+            ps.setString(1, posting.type());
+            ps.setLong(2, posting.amount());
+            ps.setString(3, posting.description());
+            ps.setString(4, email);
+            ps.setString(5, posting.timestamp());
+            ps.setInt(6, Categorizer.categorize(posting.description()));
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    /** Re-inserts the rows of a journaled chunk, without checking them again; see {@link PostingJournal#replay}. */
+    static void replay(ConnectionPool pool, PostingJournal.Imported imported) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.writer()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false);
+            try {
+                insert(lease, imported.email(), imported.postings());
+                DatabaseHandler.journal.append(lease, imported);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        AccountSnapshotCache.invalidate(imported.email());
+    }
+
+    private static void reject(long line, String reason, long[] counts) {
+        counts[1]++;
+        if (counts[1] <= MAX_REPORTED_REJECTS) {
+            System.out.println("Line " + line + " rejected: " + reason);
+        } else if (counts[1] == MAX_REPORTED_REJECTS + 1) {
+            System.out.println("Further rejected lines are counted but not listed.");
+        }
+    }
+
+    /**
+     * Reads one RFC 4180 record: fields may be quoted, quoted fields may contain commas,
+     * doubled quotes and line breaks. Returns {@code null} at end of input.
+     */
+    static List<String> readRecord(BufferedReader in, long[] line) throws IOException {
+        String text = in.readLine();
+        if (text == null) {
+            return null;
+        }
+        line[0]++;
+
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == text.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // a quoted field continues on the next physical line
+                String next = in.readLine();
+                if (next == null) {
+                    break;
+                }
+                line[0]++;
+                field.append('\n');
+                text = next;
+                i = 0;
+                continue;
+            }
+
+            char c = text.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < text.length() && text.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
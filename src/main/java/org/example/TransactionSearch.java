@@ -0,0 +1,116 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Full-text search over a user's transaction descriptions.
+ *
+ * {@code transactions_fts} is an FTS5 index over {@code transactions}, kept in step with
+ * it by triggers. Besides the description it indexes an owner token,
+ * the hex of the user's email, which is a single token per user: matching it narrows the
+ * search to that user's postings inside the index, before any row is read.
+ *
+ * A query is a list of terms that must all match: {@code rent} is a word, {@code mar*} a
+ * prefix and {@code "monthly rent"} a phrase. Results are ordered by bm25 relevance, newest
+ * first among equals, and can be narrowed with the history filters; its sort options do
+ * not apply.
+ */
+public class TransactionSearch {
+    public static final int DEFAULT_LIMIT = Integer.getInteger("ledger.search.limit", 20);
+    private static final OperationMetrics HISTORY_SEARCH = Metrics.operation("history.search");
+
+    @SuppressWarnings("try")
+    public static List<TransactionHistory.Row> search(String email, String text, TransactionHistory.Filter filter,
+                                                      int limit) throws SQLException {
+        String terms = matchTerms(text);
+        if (terms == null) {
+            throw new IllegalArgumentException("Enter at least one word to search for.");
+        }
+
+        // CROSS JOIN keeps the index as the outer loop: with a date filter the planner would
+        // otherwise walk idx_transactions_user_time and re-run the match for every row
+        StringBuilder sql = new StringBuilder("SELECT t.id, t.type, t.amount, t.description, t.timestamp " +
+                "FROM transactions_fts CROSS JOIN transactions t ON t.id = transactions_fts.rowid " +
+                "WHERE transactions_fts MATCH ? AND t.user_email = ?");
+        List<Object> parameters = new ArrayList<>();
+        parameters.add("owner : \"" + ownerToken(email) + "\" AND description : (" + terms + ")");
+        parameters.add(email);
+        TransactionHistory.appendFilters(sql, parameters, filter, "t.");
+        // the owner column only selects rows, so it carries no weight in the ranking
+        sql.append(" ORDER BY bm25(transactions_fts, 1.0, 0.0), t.timestamp DESC, t.id DESC LIMIT ?");
+        parameters.add(limit);
+
+        List<TransactionHistory.Row> rows = new ArrayList<>(limit);
+        try (OperationMetrics.Timer timer = HISTORY_SEARCH.time();
+             ConnectionPool.Lease lease = DatabaseHandler.getPool().reader()) {
+            PreparedStatement ps = lease.prepare(sql.toString());
+            for (int i = 0; i < parameters.size(); i++) {
+                ps.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new TransactionHistory.Row(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                            rs.getString(4), rs.getString(5)));
+                }
+            }
+        } catch (SQLException e) {
+            HISTORY_SEARCH.error(e);
+            throw e;
+        }
+        return rows;
+    }
+
+    /** The same token the triggers index: hex(user_email), i.e. the hex of its UTF-8 bytes. */
+    static String ownerToken(String email) {
+        return HexFormat.of().withUpperCase().formatHex(email.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Turns user input into an FTS5 expression of quoted terms joined with AND, so that
+     * operators and punctuation in the input are searched for rather than interpreted.
+     * Returns null if the input has nothing to search for.
+     */
+    static String matchTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            String term;
+            if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = text.length();
+                }
+                term = text.substring(i + 1, end);
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < text.length() && !Character.isWhitespace(text.charAt(i)) && text.charAt(i) != '"') {
+                    i++;
+                }
+                term = text.substring(start, i);
+            }
+            boolean prefix = term.endsWith("*") || (i < text.length() && text.charAt(i) == '*');
+            while (term.endsWith("*")) {
+                term = term.substring(0, term.length() - 1);
+            }
+            while (i < text.length() && text.charAt(i) == '*') {
+                i++;
+            }
+            if (term.codePoints().anyMatch(Character::isLetterOrDigit)) {
+                terms.add("\"" + term + "\"" + (prefix ? "*" : ""));
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" AND ", terms);
+    }
+}
@@ -0,0 +1,107 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Schedules have to add up to the cent: principal repaid equals the loan, and a flat
+ * loan charges rate * principal in total however the months round.
+ */
+class AmortizationTest {
+
+    private static final double CENT = 1e-9;
+
+    @Test
+    void flatLoanChargesTheRateOnceOverTheTerm() {
+        Amortization.Schedule s = Amortization.compute(
+                Amortization.Scenario.of(Amortization.Method.FLAT, 1000, 0.10, 12));
+        assertEquals(12, s.length());
+        assertEquals(100.00, s.totalInterest(), CENT);
+        assertEquals(1100.00, s.totalPaid(), CENT);
+        assertEquals(0, s.balance(11), CENT);
+    }
+
+    @Test
+    void flatLoanLastMonthAbsorbsTheRounding() {
+        Amortization.Schedule s = Amortization.compute(
+                Amortization.Scenario.of(Amortization.Method.FLAT, 1000, 0.10, 3));
+        assertEquals(33.33, s.interest(0), CENT);
+        assertEquals(33.34, s.interest(2), CENT);
+        assertEquals(100.00, s.totalInterest(), CENT);
+        assertEquals(1000.00, s.principal(0) + s.principal(1) + s.principal(2), CENT);
+    }
+
+    @Test
+    void reducingLoanRepaysThePrincipalExactly() {
+        Amortization.Schedule s = Amortization.compute(
+                Amortization.Scenario.of(Amortization.Method.REDUCING, 5000, 0.12, 24));
+        double repaid = 0;
+        for (int i = 0; i < s.length(); i++) {
+            repaid += s.principal(i);
+        }
+        assertEquals(24, s.length());
+        assertEquals(5000.00, repaid, 1e-6);
+        assertEquals(0, s.balance(23), CENT);
+        assertEquals(s.totalPaid() - 5000, s.totalInterest(), 1e-6);
+        assertEquals(50.00, s.interest(0), CENT);
+    }
+
+    @Test
+    void earlyRepaymentShortensAFlatLoanAndDropsItsInterest() {
+        Amortization.Schedule s = Amortization.compute(
+                Amortization.Scenario.of(Amortization.Method.FLAT, 1200, 0.12, 12).withEarlyRepayment(3, 600));
+        // 100 + 600 extra in month 3 leaves 300, cleared by months 4 to 6
+        assertEquals(700.00 + 12, s.payment(2), CENT);
+        assertEquals(300.00, s.balance(2), CENT);
+        assertEquals(6, s.length());
+        assertEquals(72.00, s.totalInterest(), CENT);
+        assertEquals(1272.00, s.totalPaid(), CENT);
+    }
+
+    @Test
+    void rateChangeRepricesTheRemainingMonths() {
+        Amortization.Schedule flat = Amortization.compute(
+                Amortization.Scenario.of(Amortization.Method.FLAT, 1200, 0.12, 12).withRateChange(7, 0.24));
+        assertEquals(112.00, flat.payment(5), CENT);
+        assertEquals(124.00, flat.payment(6), CENT);
+        assertEquals(72.00 + 144.00, flat.totalInterest(), CENT);
+
+        Amortization.Schedule reducing = Amortization.compute(
+                Amortization.Scenario.of(Amortization.Method.REDUCING, 1200, 0, 12).withRateChange(7, 0.12));
+        assertEquals(100.00, reducing.payment(5), CENT);
+        // the 600 left is re-amortized over six months at 1% a month
+        assertEquals(103.53, reducing.payment(6), CENT);
+        assertEquals(6.00, reducing.interest(6), CENT);
+        assertEquals(0, reducing.balance(11), CENT);
+    }
+
+    @Test
+    void whatIfMatchesComputingEachScenarioAlone() {
+        Amortization.Scenario[] scenarios = {
+                Amortization.Scenario.of(Amortization.Method.FLAT, 1000, 0.10, 12),
+                Amortization.Scenario.of(Amortization.Method.REDUCING, 5000, 0.12, 24),
+                Amortization.Scenario.of(Amortization.Method.FLAT, 1200, 0.12, 12).withEarlyRepayment(3, 600),
+        };
+        Amortization.BatchResult batch = Amortization.whatIf(scenarios);
+        double[] totals = new double[scenarios.length];
+        int[] payoff = new int[scenarios.length];
+        for (int i = 0; i < scenarios.length; i++) {
+            Amortization.Schedule s = Amortization.compute(scenarios[i]);
+            totals[i] = s.totalPaid();
+            payoff[i] = s.length();
+        }
+        assertArrayEquals(totals, batch.totalPaid(), CENT);
+        assertArrayEquals(payoff, batch.payoffMonth());
+    }
+
+    @Test
+    void rejectsLoansWithoutPrincipalOrTerm() {
+        assertThrows(IllegalArgumentException.class, () -> Amortization.compute(
+                Amortization.Scenario.of(Amortization.Method.FLAT, 0, 0.10, 12)));
+        assertThrows(IllegalArgumentException.class, () -> Amortization.compute(
+                Amortization.Scenario.of(Amortization.Method.REDUCING, 1000, 0.10, 0)));
+    }
+}
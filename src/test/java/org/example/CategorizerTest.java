@@ -0,0 +1,95 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The automaton replaced a CASE of LIKE tests, so with the seeded dictionary it has to
+ * pick the category SQLite itself would have picked for any description.
+ */
+class CategorizerTest {
+
+    // migration 11's seed, the same rules vw_spending_categories applied with CASE
+    private static final Categorizer SEEDED = new Categorizer(List.of(
+            new Categorizer.Category(Categorizer.OTHER, "Other", 1000),
+            new Categorizer.Category(2, "Food", 10),
+            new Categorizer.Category(3, "Housing", 20),
+            new Categorizer.Category(4, "Transport", 30)),
+            Map.of("food", 2, "rent", 3, "transport", 4));
+
+    private static final String OLD_RULES = "SELECT CASE " +
+            "WHEN ?1 LIKE '%food%' THEN 'Food' " +
+            "WHEN ?1 LIKE '%rent%' THEN 'Housing' " +
+            "WHEN ?1 LIKE '%transport%' THEN 'Transport' " +
+            "ELSE 'Other' END";
+
+    @Test
+    void agreesWithTheOldLikeRules() throws SQLException {
+        String[] descriptions = {
+                "", "Deposit", "food", "FOOD", "Fast Food", "Rent for May", "parent's gift",
+                "Transportation", "TRANSPORT pass", "transpor", "foo d", "foofood", "rentransport",
+                "rent and food", "transport, rent", "Café food", "ÉFOOD", "résumé rent",
+                "Loan repayment", "Savings transfer", "fo", "renT", "tRaNsPoRt",
+        };
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+             PreparedStatement ps = conn.prepareStatement(OLD_RULES)) {
+            for (String description : descriptions) {
+                ps.setString(1, description);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    assertEquals(rs.getString(1), SEEDED.nameOf(SEEDED.match(description)), description);
+                }
+            }
+        }
+    }
+
+    @Test
+    void lowestPriorityWinsWhereverItMatches() {
+        assertEquals(2, SEEDED.match("transport to the food court"));
+        assertEquals(3, SEEDED.match("transport then rent"));
+        assertEquals(Categorizer.OTHER, SEEDED.match("groceries"));
+    }
+
+    @Test
+    void findsKeywordsThatOverlapOrSitInsideOthers() {
+        // the textbook set for failure links: "she" contains "he", "hers" extends "her"
+        Map<String, Integer> keywords = new LinkedHashMap<>();
+        keywords.put("he", 5);
+        keywords.put("she", 4);
+        keywords.put("his", 3);
+        keywords.put("hers", 2);
+        Categorizer categorizer = new Categorizer(List.of(
+                new Categorizer.Category(Categorizer.OTHER, "Other", 1000),
+                new Categorizer.Category(2, "Hers", 1),
+                new Categorizer.Category(3, "His", 2),
+                new Categorizer.Category(4, "She", 3),
+                new Categorizer.Category(5, "He", 4)), keywords);
+
+        assertEquals(5, categorizer.match("the"));
+        assertEquals(4, categorizer.match("ushe"));
+        assertEquals(2, categorizer.match("ushers"));
+        assertEquals(3, categorizer.match("ahishe"));
+        assertEquals(Categorizer.OTHER, categorizer.match("hs"));
+    }
+
+    @Test
+    void ignoresKeywordsOfUnknownCategories() {
+        Categorizer categorizer = new Categorizer(List.of(
+                new Categorizer.Category(Categorizer.OTHER, "Other", 1000),
+                new Categorizer.Category(2, "Food", 10)),
+                Map.of("food", 2, "rent", 99));
+        assertEquals(Categorizer.OTHER, categorizer.match("rent"));
+        assertEquals(2, categorizer.idOf("FOOD"));
+        assertEquals("Other", categorizer.nameOf(99));
+    }
+}
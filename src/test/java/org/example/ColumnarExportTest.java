@@ -0,0 +1,147 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The columnar file is only as good as its codec: every value the exporter encodes has to
+ * come back out of the reader unchanged, across blocks and at the edges of the ranges.
+ */
+class ColumnarExportTest {
+
+    private static final String[] USERS = {"a@example.com", "b@example.com", "c@example.com"};
+    private static final String[] DESCRIPTIONS = {"Food market", "Rent", "Bus transport", "Deposit"};
+
+    @TempDir
+    static Path dir;
+
+    // several blocks from a small ledger; the block size is read when ColumnarExporter loads
+    @BeforeAll
+    static void smallBlocks() {
+        System.setProperty("ledger.export.columnar.blockRows", "7");
+    }
+
+    @Test
+    void zigzagMapsSmallMagnitudesToSmallCodes() {
+        long[][] pairs = {{0, 0}, {-1, 1}, {1, 2}, {-2, 3}, {2, 4},
+                {Long.MAX_VALUE, -2}, {Long.MIN_VALUE, -1}};
+        for (long[] pair : pairs) {
+            assertEquals(pair[1], ColumnarExporter.zigzag(pair[0]), "zigzag(" + pair[0] + ")");
+            assertEquals(pair[0], ColumnarReader.unzigzag(pair[1]), "unzigzag(" + pair[1] + ")");
+        }
+    }
+
+    @Test
+    void varintsUseSevenBitsPerByte() {
+        assertArrayEquals(new byte[]{0}, varint(0));
+        assertArrayEquals(new byte[]{0x7F}, varint(127));
+        assertArrayEquals(new byte[]{(byte) 0x80, 0x01}, varint(128));
+        assertArrayEquals(new byte[]{(byte) 0xAC, 0x02}, varint(300));
+        // a negative value is a full 64-bit pattern, ten bytes with one bit in the last
+        assertEquals(10, varint(-1).length);
+        assertEquals(0x01, varint(-1)[9]);
+    }
+
+    private static byte[] varint(long value) {
+        ColumnarExporter.ByteSink sink = new ColumnarExporter.ByteSink(1);
+        sink.putVarint(value);
+        ByteBuffer buffer = sink.buffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    void readsEpochSecondsFromSqliteTimestamps() {
+        assertEquals(0, ColumnarExporter.epochSeconds("1970-01-01 00:00:00"));
+        assertEquals(LocalDate.of(2024, 2, 29).toEpochDay() * 86_400 + 3_661,
+                ColumnarExporter.epochSeconds("2024-02-29 01:01:01"));
+        assertEquals(LocalDate.of(2024, 3, 1).toEpochDay() * 86_400, ColumnarExporter.epochSeconds("2024-03-01"));
+        assertEquals(ColumnarExporter.NO_TIMESTAMP, ColumnarExporter.epochSeconds("2023-02-29"));
+        assertEquals(ColumnarExporter.NO_TIMESTAMP, ColumnarExporter.epochSeconds("1700000000000"));
+        assertEquals(ColumnarExporter.NO_TIMESTAMP, ColumnarExporter.epochSeconds(null));
+    }
+
+    @Test
+    void exportReadsBackTheSameTotals() throws Exception {
+        String url = "jdbc:sqlite:" + dir.resolve("columnar.db");
+        Map<String, Long> balances = new TreeMap<>();
+        Map<String, Long> spending = new TreeMap<>();
+        Map<String, Long> spendingInMarch = new TreeMap<>();
+        String[] categories = {null, "Other", "Food", "Housing", "Transport"};
+        int rows = 40;
+
+        try (ConnectionPool pool = new ConnectionPool(url, 1)) {
+            try (ConnectionPool.Lease lease = pool.writer();
+                 Statement stmt = lease.connection().createStatement()) {
+                stmt.executeUpdate("CREATE TABLE categories (id INTEGER PRIMARY KEY, name TEXT NOT NULL)");
+                stmt.executeUpdate("INSERT INTO categories VALUES (1, 'Other'), (2, 'Food'), (3, 'Housing'), (4, 'Transport')");
+                stmt.executeUpdate("CREATE TABLE transactions (id INTEGER PRIMARY KEY, timestamp TEXT, amount INTEGER, " +
+                        "type TEXT, user_email TEXT, description TEXT, category_id INTEGER)");
+                try (PreparedStatement insert = lease.connection().prepareStatement(
+                        "INSERT INTO transactions VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                    for (int i = 0; i < rows; i++) {
+                        // gaps in the ids, days going back and forth across a month boundary,
+                        // and the odd unreadable timestamp
+                        long id = 1 + i * 3L + (i % 4 == 0 ? 1000 : 0);
+                        LocalDate day = LocalDate.of(2024, 2, 25).plusDays((i * 5) % 13);
+                        String timestamp = i % 11 == 5 ? "legacy" : day + " 12:" + String.format("%02d", i % 60) + ":00";
+                        long amount = i == 7 ? 4_000_000_000_000L : (i * 1_237L) % 50_000 + 1;
+                        String type = i % 3 == 0 ? "Credit" : "Debit";
+                        String user = i % 13 == 12 ? null : USERS[i % USERS.length];
+                        int category = 1 + i % 4;
+
+                        insert.setLong(1, id);
+                        insert.setString(2, timestamp);
+                        insert.setLong(3, amount);
+                        insert.setString(4, type);
+                        insert.setString(5, user);
+                        insert.setString(6, DESCRIPTIONS[i % DESCRIPTIONS.length]);
+                        insert.setInt(7, category);
+                        insert.addBatch();
+
+                        if (user != null) {
+                            balances.merge(user, type.equals("Debit") ? amount : -amount, Long::sum);
+                        }
+                        if (type.equals("Debit")) {
+                            spending.merge(categories[category], amount, Long::sum);
+                            if (!timestamp.equals("legacy") && day.getMonthValue() == 3) {
+                                spendingInMarch.merge(categories[category], amount, Long::sum);
+                            }
+                        }
+                    }
+                    insert.executeBatch();
+                }
+            }
+
+            Path file = dir.resolve("ledger.col");
+            ColumnarExporter.ExportResult result = ColumnarExporter.export(pool, file);
+            assertEquals(rows, result.rows());
+            assertEquals((rows + ColumnarExporter.BLOCK_ROWS - 1) / ColumnarExporter.BLOCK_ROWS, result.blocks());
+
+            try (ColumnarReader reader = new ColumnarReader(file)) {
+                assertEquals(rows, reader.rows());
+                assertEquals(result.blocks(), reader.blocks());
+                assertEquals(balances, reader.balances());
+                assertEquals(spending, reader.categoryTotals("Debit", null, null));
+                assertEquals(spendingInMarch, reader.categoryTotals("Debit",
+                        LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31)));
+                assertEquals(Map.of(), reader.categoryTotals("Debit", LocalDate.of(2030, 1, 1), null));
+                assertEquals(Map.of(), reader.categoryTotals("Refund", null, null));
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A loan from before monthly_repayment existed must come out of the migrations both
+ * overdue and repayable, so its owner can clear the block by repaying.
+ */
+class LegacyLoanMigrationTest {
+
+    private static final String EMAIL = "legacy@example.com";
+
+    @TempDir
+    static Path dir;
+
+    // DatabaseHandler opens and migrates ledger.db.url when the class loads, so the
+    // legacy database has to exist before anything touches it
+    @BeforeAll
+    static void createLegacyDatabase() throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("legacy.db");
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("""
+                CREATE TABLE loans (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    user_email TEXT NOT NULL,
+                    principal_amount REAL NOT NULL,
+                    interest_rate REAL NOT NULL,
+                    status TEXT NOT NULL,
+                    repayment_period INTEGER NOT NULL,
+                    outstanding_balance REAL NOT NULL,
+                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    monthly_repayment REAL
+                )
+                """);
+            // the shape of the oldest rows: epoch-millis created_at and no monthly_repayment
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO loans (user_email, principal_amount, " +
+                    "interest_rate, status, repayment_period, outstanding_balance, created_at) " +
+                    "VALUES (?, 200, 10, 'active', 1, 2200, ?)")) {
+                ps.setString(1, EMAIL);
+                ps.setLong(2, ZonedDateTime.now().minusMonths(3).toInstant().toEpochMilli());
+                ps.executeUpdate();
+            }
+        }
+        System.setProperty("ledger.db.url", url);
+    }
+
+    @Test
+    void migratedLegacyLoanCanBeRepaidToLiftTheBlock() {
+        DatabaseHandler db = new DatabaseHandler();
+        assertTrue(db.isBlocked(EMAIL), "a loan three months past its only installment is overdue");
+        assertEquals(220000, db.getLoanBalance(EMAIL));
+
+        assertEquals(220000, db.repayLoan(EMAIL));
+        assertEquals(0, db.getLoanBalance(EMAIL));
+        assertFalse(db.isBlocked(EMAIL));
+    }
+}
@@ -0,0 +1,66 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Amounts are parsed straight into minor units, so the rounding and overflow rules
+ * live in Money.parse rather than in BigDecimal.
+ */
+class MoneyTest {
+
+    @Test
+    void parsesWholeAndFractionalAmountsExactly() {
+        assertEquals(1200, Money.parse("12"));
+        assertEquals(1250, Money.parse("12.5"));
+        assertEquals(123456, Money.parse("1234.56"));
+        assertEquals(-350, Money.parse("-3.5"));
+        assertEquals(700, Money.parse("+7"));
+        assertEquals(50, Money.parse(".5"));
+        assertEquals(1200, Money.parse("12."));
+    }
+
+    @Test
+    void roundsDigitsPastTheCentsHalfUp() {
+        assertEquals(1234, Money.parse("12.344"));
+        assertEquals(1235, Money.parse("12.345"));
+        assertEquals(1235, Money.parse("12.3450001"));
+        // only the third decimal decides, as in decimal rounding
+        assertEquals(1234, Money.parse("12.3449999"));
+        assertEquals(200, Money.parse("1.995"));
+        assertEquals(-1235, Money.parse("-12.345"));
+    }
+
+    @Test
+    void rejectsTextThatIsNotAnAmount() {
+        for (String text : new String[]{"", "-", ".", "abc", "1,5", "1.2.3", "12 ", "1e3"}) {
+            assertThrows(NumberFormatException.class, () -> Money.parse(text), text);
+        }
+    }
+
+    @Test
+    void detectsOverflowInsteadOfWrappingAround() {
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+        assertThrows(ArithmeticException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(ArithmeticException.class, () -> Money.parse("99999999999999999999"));
+    }
+
+    @Test
+    void formatsWithTwoPlacesAndRoundTrips() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("-12.05", Money.format(-1205));
+        assertEquals("1234.50", Money.format(123450));
+        for (long minor : new long[]{0, 1, 99, 100, 1205, -1205, 987654321}) {
+            assertEquals(minor, Money.parse(Money.format(minor)));
+        }
+    }
+
+    @Test
+    void convertsMajorUnitsRoundingHalfAwayFromZero() {
+        assertEquals(1235, Money.ofMajor(12.345));
+        assertEquals(-1235, Money.ofMajor(-12.345));
+        assertEquals(12.05, Money.toMajor(1205));
+    }
+}
@@ -0,0 +1,66 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Exported descriptions can hold commas, quotes and line breaks, so the importer has to
+ * split records the way RFC 4180 does rather than on every comma and newline.
+ */
+class TransactionImporterTest {
+
+    private static List<String> first(String csv) throws IOException {
+        return TransactionImporter.readRecord(new BufferedReader(new StringReader(csv)), new long[1]);
+    }
+
+    @Test
+    void splitsPlainFieldsOnCommas() throws IOException {
+        assertEquals(List.of("Debit", "12.50", "Lunch", "2024-03-01"), first("Debit,12.50,Lunch,2024-03-01"));
+        assertEquals(List.of("", "", ""), first(",,"));
+        assertEquals(List.of(""), first("\n"));
+    }
+
+    @Test
+    void keepsCommasAndDoubledQuotesInsideQuotedFields() throws IOException {
+        assertEquals(List.of("Debit", "Rent, March", "x"), first("Debit,\"Rent, March\",x"));
+        assertEquals(List.of("The \"good\" cafe"), first("\"The \"\"good\"\" cafe\""));
+        assertEquals(List.of("", "a"), first("\"\",a"));
+        assertEquals(List.of("\""), first("\"\"\"\""));
+    }
+
+    @Test
+    void treatsQuotesInsideUnquotedFieldsAsText() throws IOException {
+        assertEquals(List.of("5\" screen", "b"), first("5\" screen,b"));
+    }
+
+    @Test
+    void quotedFieldsContinueAcrossLineBreaks() throws IOException {
+        BufferedReader in = new BufferedReader(new StringReader(
+                "Debit,\"first line\r\nsecond, line\n\",3\r\nCredit,1,plain\r\n"));
+        long[] line = new long[1];
+
+        assertEquals(List.of("Debit", "first line\nsecond, line\n", "3"), TransactionImporter.readRecord(in, line));
+        assertEquals(3, line[0]);
+        assertEquals(List.of("Credit", "1", "plain"), TransactionImporter.readRecord(in, line));
+        assertEquals(4, line[0]);
+        assertNull(TransactionImporter.readRecord(in, line));
+        assertEquals(4, line[0]);
+    }
+
+    @Test
+    void unterminatedQuoteRunsToEndOfInput() throws IOException {
+        assertEquals(List.of("a", "open\nstill open"), first("a,\"open\nstill open"));
+    }
+
+    @Test
+    void returnsNullAtEndOfInput() throws IOException {
+        assertNull(first(""));
+    }
+}